@@ -0,0 +1,52 @@
+package com.example.dashboard;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Photo URIs known not to open, so they are not read again on every bind
+ * Filled by failed decodes and by the photo integrity scanner, which also
+ * takes URIs out again once they open. Bounded, the least recently marked
+ * URIs are forgotten first. Thread safe.
+ */
+final class BadUriCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    // Singleton instance
+    private static BadUriCache sInstance;
+
+    // Access ordered, so the eldest entry is the least recently marked or checked
+    private final LinkedHashMap<String, Boolean> badUris =
+            new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    static synchronized BadUriCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new BadUriCache();
+        }
+        return sInstance;
+    }
+
+    synchronized boolean contains(String photoUri) {
+        return photoUri != null && badUris.get(photoUri) != null;
+    }
+
+    synchronized void markBad(String photoUri) {
+        if (photoUri != null) {
+            badUris.put(photoUri, Boolean.TRUE);
+        }
+    }
+
+    synchronized void markGood(String photoUri) {
+        badUris.remove(photoUri);
+    }
+
+    synchronized int size() {
+        return badUris.size();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.dashboard;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.Uri;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes photos no larger than they will be shown
+ * Reads the image size first, then decodes with the largest power of two
+ * sample size that still covers the requested size
+ * Given a BitmapPool, decodes and scales into pooled bitmaps where one fits,
+ * and hands the intermediate bitmap back to the pool.
+ * Photos with a known face can be decoded cropped to the face, reading only
+ * that part of the image.
+ */
+final class BitmapDecoder {
+
+    private BitmapDecoder() {
+    }
+
+    /**
+     * Decode the image at uri so it is at least reqWidth by reqHeight, or null if it is not an image
+     */
+    static Bitmap decodeSampled(ContentResolver resolver, Uri uri, int reqWidth, int reqHeight)
+            throws IOException {
+        return decodeSampled(resolver, uri, reqWidth, reqHeight, null);
+    }
+
+    /**
+     * Decode the image at uri so it is at least reqWidth by reqHeight, reusing a pooled bitmap if one fits
+     * @param pool Pool to take the target bitmap from, or null to always allocate
+     */
+    static Bitmap decodeSampled(ContentResolver resolver, Uri uri, int reqWidth, int reqHeight,
+                                BitmapPool pool) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                reqWidth, reqHeight);
+        options.inJustDecodeBounds = false;
+        if (pool != null) {
+            // Sampling rounds up, so this is the largest the decoded bitmap can be
+            int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+            options.inMutable = true;
+            options.inBitmap = pool.get(width, height, Bitmap.Config.ARGB_8888);
+        }
+        try (InputStream in = open(resolver, uri)) {
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            // The decoder could not use the pooled bitmap, decode into a new one instead
+            if (options.inBitmap == null) {
+                throw e;
+            }
+            options.inBitmap = null;
+            try (InputStream in = open(resolver, uri)) {
+                return BitmapFactory.decodeStream(in, null, options);
+            }
+        }
+    }
+
+    /**
+     * Decode only the part of the image around the face, shaped like a reqWidth by reqHeight view
+     * @param pool Pool to take the target bitmap from, or null to always allocate
+     * @return The cropped photo, or null if the image cannot be decoded by region
+     */
+    static Bitmap decodeFaceCrop(ContentResolver resolver, Uri uri, FaceRegion face,
+                                 int reqWidth, int reqHeight, BitmapPool pool) throws IOException {
+        BitmapRegionDecoder decoder;
+        try (InputStream in = open(resolver, uri)) {
+            decoder = BitmapRegionDecoder.newInstance(in);
+        }
+        if (decoder == null) {
+            return null;
+        }
+        try {
+            Rect crop = cropAround(decoder.getWidth(), decoder.getHeight(), face, reqWidth, reqHeight);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = calculateInSampleSize(crop.width(), crop.height(), reqWidth, reqHeight);
+            if (pool != null) {
+                options.inMutable = true;
+                options.inBitmap = pool.get((crop.width() + options.inSampleSize - 1) / options.inSampleSize,
+                        (crop.height() + options.inSampleSize - 1) / options.inSampleSize,
+                        Bitmap.Config.ARGB_8888);
+            }
+            try {
+                return decoder.decodeRegion(crop, options);
+            } catch (IllegalArgumentException e) {
+                if (options.inBitmap == null) {
+                    throw e;
+                }
+                options.inBitmap = null;
+                return decoder.decodeRegion(crop, options);
+            }
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    /**
+     * Part of a width by height image to show in a reqWidth by reqHeight view so the face fills it
+     * The crop has the view's aspect ratio and contains the face. It is no
+     * smaller than the view where the image allows, so it is never blown up
+     * past the photo's own resolution, and it stays inside the image.
+     */
+    static Rect cropAround(int width, int height, FaceRegion face, int reqWidth, int reqHeight) {
+        float aspect = reqWidth > 0 && reqHeight > 0 ? (float) reqWidth / reqHeight : 1f;
+        float faceLeft = face.getLeft() * width;
+        float faceTop = face.getTop() * height;
+        float faceRight = face.getRight() * width;
+        float faceBottom = face.getBottom() * height;
+
+        float cropWidth = Math.max(Math.max(faceRight - faceLeft, (faceBottom - faceTop) * aspect), reqWidth);
+        float cropHeight = cropWidth / aspect;
+        if (cropWidth > width) {
+            cropWidth = width;
+            cropHeight = cropWidth / aspect;
+        }
+        if (cropHeight > height) {
+            cropHeight = height;
+            cropWidth = cropHeight * aspect;
+        }
+
+        // Center on the face, then slide back inside the image
+        float left = Math.max(0, Math.min((faceLeft + faceRight - cropWidth) / 2, width - cropWidth));
+        float top = Math.max(0, Math.min((faceTop + faceBottom - cropHeight) / 2, height - cropHeight));
+        return new Rect(Math.round(left), Math.round(top),
+                Math.min(width, Math.round(left + cropWidth)), Math.min(height, Math.round(top + cropHeight)));
+    }
+
+    /**
+     * Scale the bitmap down until it just covers reqWidth by reqHeight
+     * Sampling only halves, so a decoded photo can be almost twice the size needed.
+     * Returns the same bitmap if it is already small enough.
+     */
+    static Bitmap scaleToCover(Bitmap bitmap, int reqWidth, int reqHeight) {
+        return scaleToCover(bitmap, reqWidth, reqHeight, null);
+    }
+
+    /**
+     * Scale the bitmap down until it just covers reqWidth by reqHeight, drawing into a pooled bitmap if one fits
+     * When a smaller copy is made, the original goes back to the pool.
+     * @param pool Pool to take the target bitmap from and return the original to, or null to always allocate
+     */
+    static Bitmap scaleToCover(Bitmap bitmap, int reqWidth, int reqHeight, BitmapPool pool) {
+        float scale = Math.max((float) reqWidth / bitmap.getWidth(), (float) reqHeight / bitmap.getHeight());
+        if (scale >= 1f || reqWidth <= 0 || reqHeight <= 0) {
+            return bitmap;
+        }
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        if (pool == null) {
+            return Bitmap.createScaledBitmap(bitmap, width, height, true);
+        }
+
+        Bitmap.Config config = bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap scaled = pool.get(width, height, config);
+        if (scaled == null) {
+            scaled = Bitmap.createBitmap(width, height, config);
+        }
+        new Canvas(scaled).drawBitmap(bitmap, null, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        pool.put(bitmap);
+        return scaled;
+    }
+
+    /**
+     * Largest power of two that keeps both sides at or above the requested size
+     */
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException("Cannot open " + uri);
+        }
+        return in;
+    }
+}
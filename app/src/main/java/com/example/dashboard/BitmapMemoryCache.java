@@ -0,0 +1,120 @@
+package com.example.dashboard;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of decoded photos, bounded by bitmap bytes
+ * LruCache already counts hits and misses.
+ * Bitmaps are reference counted: the cache holds one reference, and so does
+ * whoever acquired or put a bitmap until they release it. Once a bitmap has
+ * been evicted and released by everyone it goes to the pool to be decoded into.
+ */
+class BitmapMemoryCache extends LruCache<String, Bitmap> implements TrimmableCache {
+
+    private final BitmapPool pool;
+    // Guarded by itself
+    private final Map<Bitmap, Integer> references = new IdentityHashMap<>();
+
+    BitmapMemoryCache(int maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * @param pool Pool that unused bitmaps are returned to, or null to leave them to the garbage collector
+     */
+    BitmapMemoryCache(int maxBytes, BitmapPool pool) {
+        super(maxBytes);
+        this.pool = pool;
+    }
+
+    /**
+     * Get the bitmap for key and hold a reference to it, or null if it is not cached
+     */
+    Bitmap acquire(String key) {
+        synchronized (references) {
+            Bitmap bitmap = get(key);
+            if (bitmap != null) {
+                retain(bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Cache a new bitmap for key, the caller keeps a reference to it
+     */
+    void putAndAcquire(String key, Bitmap bitmap) {
+        synchronized (references) {
+            retain(bitmap);
+            retain(bitmap);
+            put(key, bitmap);
+        }
+    }
+
+    /**
+     * Drop a reference taken with acquire or putAndAcquire
+     */
+    void release(Bitmap bitmap) {
+        boolean unused;
+        synchronized (references) {
+            Integer count = references.get(bitmap);
+            if (count == null) {
+                return;
+            }
+            unused = count == 1;
+            if (unused) {
+                references.remove(bitmap);
+            } else {
+                references.put(bitmap, count - 1);
+            }
+        }
+        if (unused && pool != null) {
+            pool.put(bitmap);
+        }
+    }
+
+    @Override
+    public long getSizeBytes() {
+        return size();
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxSize();
+    }
+
+    @Override
+    public void setMaxBytes(long maxBytes) {
+        resize(toInt(maxBytes));
+    }
+
+    @Override
+    public void trimToSize(long targetBytes) {
+        trimToSize(toInt(targetBytes));
+    }
+
+    private static int toInt(long bytes) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, bytes));
+    }
+
+    private void retain(Bitmap bitmap) {
+        Integer count = references.get(bitmap);
+        references.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    @Override
+    protected int sizeOf(String key, Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+
+    @Override
+    protected void entryRemoved(boolean evicted, String key, Bitmap oldBitmap, Bitmap newBitmap) {
+        if (oldBitmap != newBitmap) {
+            release(oldBitmap);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.dashboard;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Bitmaps no longer shown or cached, kept to decode the next photos into
+ * A bitmap handed out is at least as large as asked for and is reconfigured
+ * to the requested size and config, so decoding into it allocates nothing.
+ * Bounded by bytes, the oldest bitmaps are dropped first. Thread safe.
+ */
+final class BitmapPool implements TrimmableCache {
+
+    // Oldest first
+    private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+    private long maxBytes;
+    private long sizeBytes;
+    private int hitCount;
+    private int missCount;
+
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Take the smallest pooled bitmap that can hold width by height pixels of config
+     * @return A cleared bitmap of exactly that size, or null if none fits
+     */
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        Bitmap best = null;
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap.getConfig() == config && bitmap.getAllocationByteCount() >= needed
+                    && (best == null || bitmap.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = bitmap;
+            }
+        }
+        if (best == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        bitmaps.remove(best);
+        sizeBytes -= best.getAllocationByteCount();
+        best.reconfigure(width, height, config);
+        best.eraseColor(Color.TRANSPARENT);
+        return best;
+    }
+
+    /**
+     * Give a bitmap back for reuse, the caller must not touch it afterwards
+     * Bitmaps that cannot be decoded into are dropped.
+     */
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null
+                || bitmap.getAllocationByteCount() > maxBytes) {
+            return;
+        }
+        bitmaps.addLast(bitmap);
+        sizeBytes += bitmap.getAllocationByteCount();
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Drop the oldest bitmaps until the pool holds at most targetBytes
+     */
+    @Override
+    public synchronized void trimToSize(long targetBytes) {
+        Iterator<Bitmap> oldestFirst = bitmaps.iterator();
+        while (sizeBytes > targetBytes && oldestFirst.hasNext()) {
+            sizeBytes -= oldestFirst.next().getAllocationByteCount();
+            oldestFirst.remove();
+        }
+    }
+
+    synchronized void clear() {
+        trimToSize(0);
+    }
+
+    @Override
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    @Override
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    synchronized int getMissCount() {
+        return missCount;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+                return 2;
+            case RGBA_F16:
+                return 8;
+            default:
+                return 4;
+        }
+    }
+}
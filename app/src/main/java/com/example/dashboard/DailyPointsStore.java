@@ -0,0 +1,305 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Points per day, week and month, with the total and streak, in one small binary file
+ * The current state is an immutable PointsSnapshot behind an atomic
+ * reference. Any thread may add points: an update builds a new snapshot
+ * from the one it read and only installs it if no other update landed in
+ * between, retrying otherwise, so no addition is lost and a day's first
+ * points extend the streak exactly once. Reads never block.
+ * The whole file is rewritten atomically in the background after changes.
+ * It is read on first use, which getInstance starts on the write thread.
+ * Replaces the date_ keys PointsManager used to keep in WhosWhoPrefs, which
+ * are moved over the first time the store is opened and only deleted once
+ * the new file has been read back.
+ */
+public class DailyPointsStore {
+
+    private static final String TAG = "DailyPointsStore";
+    private static final String FILE_NAME = "daily_points.bin";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final int MAGIC = 0x57575054; // "WWPT"
+    private static final int FORMAT_VERSION = 1;
+
+    // Keys PointsManager stored in SharedPreferences before this store existed
+    static final String LEGACY_PREFS_NAME = "WhosWhoPrefs";
+    private static final String LEGACY_KEY_TOTAL_POINTS = "total_points";
+    private static final String LEGACY_KEY_DATE_PREFIX = "date_";
+    private static final String LEGACY_KEY_STREAK = "current_streak";
+
+    // Singleton instance
+    private static DailyPointsStore sInstance;
+
+    private final AtomicFile file;
+    private final SharedPreferences legacyPrefs;
+    private final Executor writeExecutor;
+    private final AtomicReference<PointsSnapshot> state = new AtomicReference<>(PointsSnapshot.EMPTY);
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+
+    /**
+     * Get singleton instance of the points store, reading it on first use
+     */
+    public static synchronized DailyPointsStore getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new DailyPointsStore(new File(appContext.getFilesDir(), FILE_NAME),
+                    appContext.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE),
+                    Executors.newSingleThreadExecutor());
+            sInstance.loadInBackground();
+        }
+        return sInstance;
+    }
+
+    DailyPointsStore(File file, SharedPreferences legacyPrefs, Executor writeExecutor) {
+        this.file = new AtomicFile(file);
+        this.legacyPrefs = legacyPrefs;
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * Read the file on the write thread, so the first caller usually finds it loaded
+     */
+    void loadInBackground() {
+        writeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+            }
+        });
+    }
+
+    /**
+     * Add points earned on a day, updating the total and streak with them
+     * @return Points earned on that day after adding
+     */
+    public int addPoints(long epochDay, int points) {
+        ensureLoaded();
+        while (true) {
+            PointsSnapshot current = state.get();
+            PointsSnapshot updated = current.plus(epochDay, points);
+            if (state.compareAndSet(current, updated)) {
+                scheduleWrite();
+                return updated.getPoints(epochDay);
+            }
+        }
+    }
+
+    /**
+     * Add points only if the state is still the given snapshot
+     * @return False if another update landed since expected was read, nothing is changed then
+     */
+    public boolean compareAndAddPoints(PointsSnapshot expected, long epochDay, int points) {
+        ensureLoaded();
+        if (!state.compareAndSet(expected, expected.plus(epochDay, points))) {
+            return false;
+        }
+        scheduleWrite();
+        return true;
+    }
+
+    /**
+     * The current state, consistent across all of its values
+     */
+    public PointsSnapshot snapshot() {
+        ensureLoaded();
+        return state.get();
+    }
+
+    /**
+     * Points earned on a day, 0 for days older than PointsSnapshot.RECENT_DAYS before the newest day
+     */
+    public int getPoints(long epochDay) {
+        return snapshot().getPoints(epochDay);
+    }
+
+    public int getWeekPoints(long epochDay) {
+        return snapshot().getWeekPoints(epochDay);
+    }
+
+    public int getMonthPoints(long epochDay) {
+        return snapshot().getMonthPoints(epochDay);
+    }
+
+    public int getTotalPoints() {
+        return snapshot().getTotalPoints();
+    }
+
+    public int getCurrentStreak(long today) {
+        return snapshot().getCurrentStreak(today);
+    }
+
+    /**
+     * Read the file, or move the old preferences over, unless that already happened
+     * Blocks only the callers that arrive before the first load has finished.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (!loaded) {
+                if (!read()) {
+                    migrateLegacyPrefs();
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    /**
+     * Write the file on the write thread, changes made before it runs share one write
+     */
+    private void scheduleWrite() {
+        if (!writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        writeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Cleared before reading the state, so a later change schedules another write
+                writeScheduled.set(false);
+                write(serialize(state.get()));
+            }
+        });
+    }
+
+    private boolean write(byte[] snapshot) {
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(snapshot);
+            file.finishWrite(out);
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save points", e);
+            if (out != null) {
+                file.failWrite(out);
+            }
+            return false;
+        }
+    }
+
+    private static byte[] serialize(PointsSnapshot snapshot) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            snapshot.writeTo(out);
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read the file, false if there is none yet or it is corrupt
+     * Only a good read deletes the old preferences.
+     */
+    private boolean read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(file.openRead()))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown points file format");
+            }
+            state.set(PointsSnapshot.readFrom(in));
+            removeLegacyPrefs();
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            // A finished AtomicFile write is never partial, so something else damaged the file
+            File corrupt = new File(file.getBaseFile().getPath() + CORRUPT_SUFFIX);
+            Log.e(TAG, "Points file is corrupt, moving it to " + corrupt
+                    + " and starting from the old preferences", e);
+            keepCorruptFile(corrupt);
+            return false;
+        }
+    }
+
+    /**
+     * Move the unreadable file aside, so its points can still be recovered by hand
+     */
+    private void keepCorruptFile(File corrupt) {
+        corrupt.delete();
+        if (!file.getBaseFile().renameTo(corrupt)) {
+            Log.e(TAG, "Could not keep a copy of the corrupt points file");
+        }
+    }
+
+    /**
+     * Move the points PointsManager kept in SharedPreferences into the store
+     */
+    private void migrateLegacyPrefs() {
+        int legacyTotal = 0;
+        TreeMap<Integer, Integer> legacyDays = new TreeMap<>();
+        for (Map.Entry<String, ?> entry : legacyPrefs.getAll().entrySet()) {
+            String key = entry.getKey();
+            if (!(entry.getValue() instanceof Integer)) {
+                continue;
+            }
+            int value = (Integer) entry.getValue();
+            if (key.equals(LEGACY_KEY_TOTAL_POINTS)) {
+                legacyTotal = value;
+            } else if (key.startsWith(LEGACY_KEY_DATE_PREFIX) && value > 0) {
+                try {
+                    int day = (int) LocalDate.parse(key.substring(LEGACY_KEY_DATE_PREFIX.length())).toEpochDay();
+                    legacyDays.put(day, value);
+                } catch (DateTimeParseException e) {
+                    Log.w(TAG, "Skipping unknown points key " + key);
+                }
+            }
+        }
+        // Replayed oldest first, which rebuilds the same streak the old code kept
+        PointsSnapshot migrated = PointsSnapshot.EMPTY;
+        for (Map.Entry<Integer, Integer> day : legacyDays.entrySet()) {
+            migrated = migrated.plus(day.getKey(), day.getValue());
+        }
+        migrated = migrated.withTotalPoints(legacyTotal);
+        state.set(migrated);
+
+        // The old keys are only forgotten once the new file reads back correctly
+        if (write(serialize(migrated))) {
+            read();
+        }
+    }
+
+    private void removeLegacyPrefs() {
+        SharedPreferences.Editor editor = null;
+        for (String key : legacyPrefs.getAll().keySet()) {
+            if (key.equals(LEGACY_KEY_TOTAL_POINTS) || key.equals(LEGACY_KEY_STREAK)
+                    || key.startsWith(LEGACY_KEY_DATE_PREFIX)) {
+                if (editor == null) {
+                    editor = legacyPrefs.edit();
+                }
+                editor.remove(key);
+            }
+        }
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+}
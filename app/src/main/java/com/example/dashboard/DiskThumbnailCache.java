@@ -0,0 +1,179 @@
+package com.example.dashboard;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Size-bounded cache of pre-scaled thumbnails in the app cache directory
+ * Each entry is a WebP file named after a hash of its key. When the total
+ * size goes over the limit, the least recently used files are deleted.
+ */
+class DiskThumbnailCache {
+
+    private static final String TAG = "DiskThumbnailCache";
+    private static final int WEBP_QUALITY = 85;
+
+    private final File directory;
+    private final long maxBytes;
+
+    // Guarded by this
+    private long sizeBytes = -1;
+    private int hitCount;
+    private int missCount;
+
+    DiskThumbnailCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Read the thumbnail for key, or null if it is not cached
+     * @param pool Pool to decode into a spare bitmap from, or null to always allocate
+     */
+    Bitmap get(String key, BitmapPool pool) {
+        // Decode outside the lock so decoder threads do not wait on each other
+        File file = fileFor(key);
+        Bitmap bitmap = file.exists() ? decode(file, pool) : null;
+        synchronized (this) {
+            if (bitmap == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+        // Mark as recently used for trimming
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    /**
+     * Store the thumbnail for key, replacing any older one
+     */
+    synchronized void put(String key, Bitmap bitmap) {
+        ensureSizeKnown();
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSY, WEBP_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write thumbnail", e);
+            temp.delete();
+            return;
+        }
+        if (file.exists()) {
+            sizeBytes -= file.length();
+        }
+        // Rename so a reader never sees a half written file
+        if (temp.renameTo(file)) {
+            sizeBytes += file.length();
+        } else {
+            temp.delete();
+        }
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Delete the least recently used files until the cache is at most targetBytes
+     */
+    synchronized void trimToSize(long targetBytes) {
+        ensureSizeKnown();
+        if (sizeBytes <= targetBytes) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (sizeBytes <= targetBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                sizeBytes -= length;
+            }
+        }
+    }
+
+    synchronized long getSizeBytes() {
+        ensureSizeKnown();
+        return sizeBytes;
+    }
+
+    synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    synchronized int getMissCount() {
+        return missCount;
+    }
+
+    private static Bitmap decode(File file, BitmapPool pool) {
+        if (pool == null) {
+            return BitmapFactory.decodeFile(file.getPath());
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = pool.get(options.outWidth, options.outHeight, Bitmap.Config.ARGB_8888);
+        try {
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    private void ensureSizeKnown() {
+        if (sizeBytes >= 0) {
+            return;
+        }
+        directory.mkdirs();
+        sizeBytes = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                sizeBytes += file.length();
+            }
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, hash(key) + ".webp");
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android device has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Searches the photos of people added before face detection for faces
+ * Works through them in small batches on its own thread, so the decodes
+ * never hold up reads or writes. Each batch is stored in one transaction
+ * through the repository's writer thread. Starting it while it runs does nothing.
+ */
+public class FaceBackfillJob {
+
+    private static final String TAG = "FaceBackfillJob";
+    private static final int BATCH_SIZE = 20;
+
+    // Singleton instance
+    private static FaceBackfillJob sInstance;
+
+    private final ContentResolver contentResolver;
+    private final WhosWhoDbHelper dbHelper;
+    private final PeopleRepository peopleRepository;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Get singleton instance of the backfill job
+     */
+    public static synchronized FaceBackfillJob getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new FaceBackfillJob(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private FaceBackfillJob(Context context) {
+        this.contentResolver = context.getContentResolver();
+        this.dbHelper = WhosWhoDbHelper.getInstance(context);
+        this.peopleRepository = PeopleRepository.getInstance(context);
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Search every photo not searched yet, in the background
+     */
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    backfill();
+                } finally {
+                    running.set(false);
+                }
+            }
+        });
+    }
+
+    private void backfill() {
+        // A person seen twice was not stored, because the write failed or the photo changed meanwhile
+        Set<Long> searchedIds = new HashSet<>();
+        while (true) {
+            List<Person> batch = dbHelper.getPeopleWithoutFaceCheck(BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Person person : batch) {
+                if (!searchedIds.add(person.getId())) {
+                    // Pick it up again on the next start
+                    return;
+                }
+                String photoUri = person.getPhotoUri();
+                person.setFaceRegion(photoUri == null || photoUri.isEmpty()
+                        ? FaceRegion.NONE : FaceLocator.findInPhoto(contentResolver, Uri.parse(photoUri)));
+            }
+            try {
+                // Wait for the write so the next query sees this batch as searched
+                peopleRepository.updateFaceRegions(batch, null).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Could not store face regions", e);
+                return;
+            }
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Searched " + searchedIds.size() + " photos for faces");
+            }
+        }
+    }
+}
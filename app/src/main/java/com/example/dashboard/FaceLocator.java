@@ -0,0 +1,83 @@
+package com.example.dashboard;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.graphics.Rect;
+import android.media.FaceDetector;
+import android.net.Uri;
+import android.util.Log;
+
+/**
+ * Finds the main face in a photo with the platform face detector
+ * Detection runs on a small RGB_565 copy, which is what FaceDetector
+ * needs and keeps each pass cheap. When a photo has several faces the
+ * largest is taken as the person the photo is of.
+ */
+final class FaceLocator {
+
+    private static final String TAG = "FaceLocator";
+    // Longest side of the copy searched for faces
+    private static final int DETECT_MAX_DIMENSION = 640;
+    private static final int MAX_FACES = 8;
+    // Region around the point between the eyes, in eye distances, so the crop keeps the whole head
+    private static final float EYES_TO_SIDE = 1.5f;
+    private static final float EYES_TO_TOP = 1.5f;
+    private static final float EYES_TO_BOTTOM = 2f;
+
+    private FaceLocator() {
+    }
+
+    /**
+     * Face region of the photo at uri, NONE if it has no face or cannot be read
+     * Runs on the calling thread, which must not be the main thread.
+     */
+    static FaceRegion findInPhoto(ContentResolver resolver, Uri uri) {
+        try {
+            Bitmap photo = BitmapDecoder.decodeSampled(resolver, uri, DETECT_MAX_DIMENSION, DETECT_MAX_DIMENSION);
+            return photo != null ? find(photo) : FaceRegion.NONE;
+        } catch (Exception e) {
+            Log.w(TAG, "Could not search " + uri + " for faces", e);
+            return FaceRegion.NONE;
+        }
+    }
+
+    /**
+     * Face region of an already decoded photo, NONE if it has no face
+     */
+    static FaceRegion find(Bitmap photo) {
+        float scale = Math.min(1f, (float) DETECT_MAX_DIMENSION / Math.max(photo.getWidth(), photo.getHeight()));
+        // FaceDetector only accepts an even width
+        int width = Math.max(2, Math.round(photo.getWidth() * scale)) & ~1;
+        int height = Math.max(1, Math.round(photo.getHeight() * scale));
+        Bitmap detectCopy = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        new Canvas(detectCopy).drawBitmap(photo, null, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+
+        FaceDetector.Face[] faces = new FaceDetector.Face[MAX_FACES];
+        int found = new FaceDetector(width, height, MAX_FACES).findFaces(detectCopy, faces);
+        detectCopy.recycle();
+
+        FaceDetector.Face largest = null;
+        for (int i = 0; i < found; i++) {
+            if (faces[i].confidence() >= FaceDetector.Face.CONFIDENCE_THRESHOLD
+                    && (largest == null || faces[i].eyesDistance() > largest.eyesDistance())) {
+                largest = faces[i];
+            }
+        }
+        if (largest == null) {
+            return FaceRegion.NONE;
+        }
+
+        PointF eyes = new PointF();
+        largest.getMidPoint(eyes);
+        float distance = largest.eyesDistance();
+        return FaceRegion.clamped(
+                (eyes.x - EYES_TO_SIDE * distance) / width,
+                (eyes.y - EYES_TO_TOP * distance) / height,
+                (eyes.x + EYES_TO_SIDE * distance) / width,
+                (eyes.y + EYES_TO_BOTTOM * distance) / height);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.dashboard;
+
+import java.util.Locale;
+
+/**
+ * Where a person's face is in their photo, as fractions of the photo's width and height
+ * NONE records that the photo was searched and no face was found.
+ */
+public final class FaceRegion {
+
+    public static final FaceRegion NONE = new FaceRegion(0, 0, 0, 0);
+
+    private final float left;
+    private final float top;
+    private final float right;
+    private final float bottom;
+
+    public FaceRegion(float left, float top, float right, float bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    /**
+     * Region with every edge clamped inside the photo
+     */
+    static FaceRegion clamped(float left, float top, float right, float bottom) {
+        return new FaceRegion(clamp(left), clamp(top), clamp(right), clamp(bottom));
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public float getRight() {
+        return right;
+    }
+
+    public float getBottom() {
+        return bottom;
+    }
+
+    /**
+     * True if there is no face to crop to
+     */
+    public boolean isEmpty() {
+        return right <= left || bottom <= top;
+    }
+
+    private static float clamp(float fraction) {
+        return Math.max(0f, Math.min(1f, fraction));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FaceRegion)) {
+            return false;
+        }
+        FaceRegion other = (FaceRegion) o;
+        return left == other.left && top == other.top && right == other.right && bottom == other.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(left);
+        result = 31 * result + Float.floatToIntBits(top);
+        result = 31 * result + Float.floatToIntBits(right);
+        result = 31 * result + Float.floatToIntBits(bottom);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "FaceRegion{%.3f, %.3f, %.3f, %.3f}", left, top, right, bottom);
+    }
+}
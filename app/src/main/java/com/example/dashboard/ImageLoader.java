@@ -0,0 +1,338 @@
+package com.example.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads person photos into image views off the main thread
+ * Photos are decoded on a background pool at the size of the view rather
+ * than at camera resolution, then posted back to the view. Loading a new
+ * photo into a view, or cancelling it, drops the decode still pending for it.
+ * Decoded thumbnails are kept in a memory cache, and in a disk cache behind
+ * it, both keyed by photo URI and size, so the original image is only read
+ * the first time a size is needed. Given a face region, only the part of the
+ * photo around the face is decoded. URIs that failed to open are remembered
+ * in BadUriCache and not tried again.
+ * Bitmaps that have left the memory cache and are no longer shown by any
+ * view go to a pool, and later decodes draw into them instead of allocating.
+ * All public methods must be called on the main thread.
+ */
+public class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+    private static final int DECODE_THREADS = 2;
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+    // Shares of the app's heap limit for decoded photos and for spare bitmaps
+    private static final float MEMORY_CACHE_SHARE = 1f / 8;
+    private static final float POOL_SHARE = 1f / 16;
+
+    // Singleton instance
+    private static ImageLoader sInstance;
+
+    private final ContentResolver contentResolver;
+    private final ExecutorService decodeExecutor;
+    private final Handler mainHandler;
+    private final BitmapPool bitmapPool;
+    private final BitmapMemoryCache memoryCache;
+    private final DiskThumbnailCache diskCache;
+    private final BadUriCache badUris;
+    // The load currently wanted by each view, a request only holds its view weakly
+    private final Map<ImageView, Request> requests = new WeakHashMap<>();
+    // The bitmap each view shows, each holds a reference in the memory cache
+    private final Map<ImageView, Bitmap> shown = new WeakHashMap<>();
+
+    /**
+     * Get singleton instance of the image loader
+     */
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ImageLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    ImageLoader(Context context) {
+        this.contentResolver = context.getContentResolver();
+        this.decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        MemoryGovernor governor = MemoryGovernor.getInstance(context);
+        this.bitmapPool = new BitmapPool(governor.budgetBytes(POOL_SHARE));
+        this.memoryCache = new BitmapMemoryCache(
+                (int) Math.min(Integer.MAX_VALUE, governor.budgetBytes(MEMORY_CACHE_SHARE)), bitmapPool);
+        this.diskCache = new DiskThumbnailCache(new File(context.getCacheDir(), DISK_CACHE_DIR),
+                DISK_CACHE_BYTES);
+        this.badUris = BadUriCache.getInstance();
+
+        governor.register("bitmaps", memoryCache, MEMORY_CACHE_SHARE);
+        governor.register("bitmap pool", bitmapPool, POOL_SHARE);
+    }
+
+    /**
+     * Show the photo at photoUri in imageView, decoded at the view's size
+     * The view is cleared until the photo is ready. A null or empty URI just clears it.
+     * @return True if the photo came from the memory cache and is already shown
+     */
+    public boolean load(String photoUri, ImageView imageView) {
+        return load(photoUri, null, imageView);
+    }
+
+    /**
+     * Show the photo at photoUri in imageView, cropped to the face if one is known
+     * @param face Face region of the photo, or null to show the whole photo
+     * @return True if the photo came from the memory cache and is already shown
+     */
+    public boolean load(String photoUri, FaceRegion face, ImageView imageView) {
+        clear(imageView);
+        if (photoUri == null || photoUri.isEmpty() || badUris.contains(photoUri)) {
+            return false;
+        }
+
+        // Read sizes now, views must only be touched on the main thread
+        int width = targetWidth(imageView);
+        int height = targetHeight(imageView);
+
+        String key = cacheKey(photoUri, face, width, height);
+        Bitmap cached = memoryCache.acquire(key);
+        if (cached != null) {
+            show(imageView, cached);
+            return true;
+        }
+
+        Request request = new Request(photoUri, face, key, imageView, width, height);
+        requests.put(imageView, request);
+        request.future = decodeExecutor.submit(request);
+        return false;
+    }
+
+    /**
+     * Decode the photo into the memory cache ahead of time, at the size imageView will need
+     * A later load of the same photo into a view of that size is then shown immediately
+     */
+    public void prefetch(final String photoUri, final FaceRegion face, ImageView imageView) {
+        if (photoUri == null || photoUri.isEmpty() || badUris.contains(photoUri)) {
+            return;
+        }
+        final int width = targetWidth(imageView);
+        final int height = targetHeight(imageView);
+        final String key = cacheKey(photoUri, face, width, height);
+        if (memoryCache.get(key) != null) {
+            return;
+        }
+        decodeExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = loadThumbnail(photoUri, face, key, width, height);
+                if (bitmap != null) {
+                    // Only wanted in the cache, nothing shows it yet
+                    memoryCache.release(bitmap);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop any pending load into imageView, for example when a list row is recycled
+     */
+    public void cancel(ImageView imageView) {
+        Request request = requests.remove(imageView);
+        if (request != null && request.future != null) {
+            request.future.cancel(true);
+        }
+    }
+
+    /**
+     * Stop any pending load into imageView and take its photo away, for example when a list row is recycled
+     * The photo's bitmap can then be reused for another decode.
+     */
+    public void clear(ImageView imageView) {
+        cancel(imageView);
+        imageView.setImageDrawable(null);
+        Bitmap previous = shown.remove(imageView);
+        if (previous != null) {
+            memoryCache.release(previous);
+        }
+    }
+
+    /**
+     * Hit and miss counts of both cache tiers and the bitmap pool, for logging
+     */
+    public String getCacheStats() {
+        return String.format(Locale.US, "memory %d hits / %d misses, disk %d hits / %d misses (%d KB), "
+                        + "pool %d hits / %d misses (%d KB)",
+                memoryCache.hitCount(), memoryCache.missCount(),
+                diskCache.getHitCount(), diskCache.getMissCount(), diskCache.getSizeBytes() / 1024,
+                bitmapPool.getHitCount(), bitmapPool.getMissCount(), bitmapPool.getSizeBytes() / 1024);
+    }
+
+    /**
+     * Number of views still waiting for a decode, for tests
+     */
+    int getPendingLoadCount() {
+        return requests.size();
+    }
+
+    /**
+     * Whether the photo is in the memory cache at the size imageView needs, for tests
+     */
+    boolean isInMemoryCache(String photoUri, FaceRegion face, ImageView imageView) {
+        return memoryCache.get(cacheKey(photoUri, face, targetWidth(imageView), targetHeight(imageView))) != null;
+    }
+
+    private void show(ImageView imageView, Bitmap bitmap) {
+        shown.put(imageView, bitmap);
+        imageView.setImageBitmap(bitmap);
+    }
+
+    private static String cacheKey(String photoUri, FaceRegion face, int width, int height) {
+        String key = photoUri + "@" + width + "x" + height;
+        return hasFace(face) ? key + "#face" : key;
+    }
+
+    private static boolean hasFace(FaceRegion face) {
+        return face != null && !face.isEmpty();
+    }
+
+    /**
+     * Thumbnail from the disk cache, or else decoded from the original and cached
+     * Runs on a decode thread. Returns null if the photo cannot be decoded.
+     * The caller holds a reference to the returned bitmap and must release it.
+     */
+    private Bitmap loadThumbnail(String photoUri, FaceRegion face, String key, int width, int height) {
+        Bitmap thumbnail = memoryCache.acquire(key);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        thumbnail = diskCache.get(key, bitmapPool);
+        if (thumbnail == null) {
+            try {
+                Uri uri = Uri.parse(photoUri);
+                Bitmap decoded = hasFace(face)
+                        ? BitmapDecoder.decodeFaceCrop(contentResolver, uri, face, width, height, bitmapPool)
+                        : null;
+                if (decoded == null) {
+                    decoded = BitmapDecoder.decodeSampled(contentResolver, uri, width, height, bitmapPool);
+                }
+                if (decoded == null) {
+                    // Opens but is not an image
+                    badUris.markBad(photoUri);
+                    return null;
+                }
+                thumbnail = BitmapDecoder.scaleToCover(decoded, width, height, bitmapPool);
+            } catch (FileNotFoundException | SecurityException e) {
+                // Deleted, or no longer allowed to read it
+                Log.w(TAG, "Photo is gone: " + photoUri);
+                badUris.markBad(photoUri);
+                return null;
+            } catch (Exception e) {
+                Log.w(TAG, "Could not decode " + photoUri, e);
+                return null;
+            }
+            diskCache.put(key, thumbnail);
+        }
+        memoryCache.putAndAcquire(key, thumbnail);
+        return thumbnail;
+    }
+
+    private static int targetWidth(ImageView imageView) {
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        return targetSize(imageView.getWidth(), params != null ? params.width : 0,
+                imageView.getResources().getDisplayMetrics().widthPixels);
+    }
+
+    private static int targetHeight(ImageView imageView) {
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        return targetSize(imageView.getHeight(), params != null ? params.height : 0,
+                imageView.getResources().getDisplayMetrics().widthPixels);
+    }
+
+    /**
+     * Size to decode for, the laid out size or else the size set in the layout
+     */
+    private static int targetSize(int measured, int layoutParam, int fallback) {
+        if (measured > 0) {
+            return measured;
+        }
+        if (layoutParam > 0) {
+            return layoutParam;
+        }
+        return fallback;
+    }
+
+    /**
+     * One decode for one view
+     * The view is held weakly, so a decode still queued does not keep a closed screen alive.
+     */
+    private class Request implements Runnable {
+        final String photoUri;
+        final FaceRegion face;
+        final String key;
+        final WeakReference<ImageView> imageView;
+        final int width;
+        final int height;
+        Future<?> future;
+
+        Request(String photoUri, FaceRegion face, String key, ImageView imageView, int width, int height) {
+            this.photoUri = photoUri;
+            this.face = face;
+            this.key = key;
+            this.imageView = new WeakReference<>(imageView);
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = loadThumbnail(photoUri, face, key, width, height);
+            if (bitmap != null && Thread.currentThread().isInterrupted()) {
+                memoryCache.release(bitmap);
+                bitmap = null;
+            }
+            final Bitmap result = bitmap;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    finish(result);
+                }
+            });
+        }
+
+        /**
+         * Forget this request on the main thread, whether it succeeded, failed or was cancelled
+         * @param bitmap The decoded photo, or null if there is none to show
+         */
+        void finish(Bitmap bitmap) {
+            // Only show it if the view is still around and still wants this photo
+            ImageView view = imageView.get();
+            boolean wanted = view != null && requests.get(view) == this;
+            if (wanted) {
+                requests.remove(view);
+            }
+            if (bitmap == null) {
+                return;
+            }
+            if (wanted) {
+                show(view, bitmap);
+            } else {
+                memoryCache.release(bitmap);
+            }
+        }
+    }
+}
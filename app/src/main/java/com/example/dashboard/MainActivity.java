@@ -10,6 +10,7 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 
 public class MainActivity extends AppCompatActivity {
@@ -62,7 +63,7 @@ public class MainActivity extends AppCompatActivity {
 
     private void updateNotificationCount() {
         // Get daily points from PointsManager
-        int dailyPoints = PointsManager.getDailyPoints(this);
+        int dailyPoints = PointsManager.getDailyPoints(this, LocalDate.now().toEpochDay());
 
         // Only show badge if there are points
         if (dailyPoints > 0) {
@@ -0,0 +1,150 @@
+package com.example.dashboard;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sizes the app's memory caches and shrinks them under memory pressure
+ * Each cache registers with a share of the per-app heap limit reported by
+ * ActivityManager.getMemoryClass(), so a 2 GB device with a small memory
+ * class gets proportionally smaller caches. When the system asks the app
+ * to trim memory, every cache is cut to a fraction of its limit that
+ * depends on how severe the request is, or cleared entirely.
+ */
+public class MemoryGovernor implements ComponentCallbacks2 {
+
+    private static final long BYTES_PER_MB = 1024L * 1024;
+
+    // Singleton instance
+    private static MemoryGovernor sInstance;
+
+    private final long memoryClassBytes;
+    // Guarded by this, in registration order
+    private final Map<String, Entry> caches = new LinkedHashMap<>();
+
+    /**
+     * Get singleton instance of the memory governor, registered for the app's trim callbacks
+     */
+    public static synchronized MemoryGovernor getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            ActivityManager activityManager =
+                    (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+            sInstance = new MemoryGovernor(activityManager.getMemoryClass());
+            appContext.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param memoryClassMb Heap limit of the app in megabytes
+     */
+    MemoryGovernor(int memoryClassMb) {
+        this.memoryClassBytes = memoryClassMb * BYTES_PER_MB;
+    }
+
+    /**
+     * Manage a cache, giving it share of the app's heap limit straight away
+     * @param name Name to report the cache's usage under
+     * @param share Fraction of the heap limit, for example 0.125f for an eighth
+     */
+    synchronized void register(String name, TrimmableCache cache, float share) {
+        Entry entry = new Entry(cache, budgetBytes(share));
+        caches.put(name, entry);
+        cache.setMaxBytes(entry.budgetBytes);
+    }
+
+    /**
+     * Bytes that share of the app's heap limit comes to, for sizing a cache before it registers
+     */
+    long budgetBytes(float share) {
+        return (long) (memoryClassBytes * share);
+    }
+
+    /**
+     * Bytes each cache holds now, by name
+     */
+    public synchronized Map<String, Long> getUsage() {
+        Map<String, Long> usage = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> cache : caches.entrySet()) {
+            usage.put(cache.getKey(), cache.getValue().cache.getSizeBytes());
+        }
+        return usage;
+    }
+
+    /**
+     * Bytes the cache registered under name may hold when there is no memory pressure
+     */
+    synchronized long getBudget(String name) {
+        Entry entry = caches.get(name);
+        return entry != null ? entry.budgetBytes : 0;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        float keep = fractionToKeep(level);
+        if (keep >= 1f) {
+            return;
+        }
+        synchronized (this) {
+            for (Entry entry : caches.values()) {
+                entry.cache.trimToSize((long) (entry.budgetBytes * keep));
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    /**
+     * How much of its budget each cache may keep at a trim level
+     * Levels while the app is visible get milder cuts than levels for a
+     * backgrounded app, which is next in line to be killed.
+     */
+    @SuppressWarnings("deprecation")
+    static float fractionToKeep(int level) {
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            return 0f;
+        }
+        if (level >= TRIM_MEMORY_MODERATE) {
+            return 0.25f;
+        }
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // Hidden or in the background, the photos shown last are not needed right now
+            return 0.5f;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 0f;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            return 0.25f;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            return 0.5f;
+        }
+        return 1f;
+    }
+
+    private static class Entry {
+        final TrimmableCache cache;
+        final long budgetBytes;
+
+        Entry(TrimmableCache cache, long budgetBytes) {
+            this.cache = cache;
+            this.budgetBytes = budgetBytes;
+        }
+    }
+}
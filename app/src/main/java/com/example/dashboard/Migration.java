@@ -0,0 +1,21 @@
+package com.example.dashboard;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * One step of a schema upgrade, from startVersion to startVersion + 1
+ * Migrations must keep existing rows, so they alter or add rather than drop
+ */
+abstract class Migration {
+
+    final int startVersion;
+
+    Migration(int startVersion) {
+        this.startVersion = startVersion;
+    }
+
+    /**
+     * Apply this step, called inside the upgrade transaction
+     */
+    abstract void migrate(SQLiteDatabase db);
+}
@@ -0,0 +1,164 @@
+package com.example.dashboard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory copy of the people table, indexed by ID and by category
+ * Filled once from the database and then kept up to date by the write
+ * methods in WhosWhoDbHelper. Callers always get copies, so editing a
+ * returned Person never changes the cached one.
+ * Holds either everyone or nothing, so trimming it below its size empties it
+ * and a table too large for the limit is not cached at all.
+ */
+class PeopleCache implements TrimmableCache {
+
+    // Rough heap cost of one cached person with its strings and index entries
+    static final long ESTIMATED_BYTES_PER_PERSON = 512;
+
+    // Both indexes are ordered by ID, the same order the table returns rows in
+    private final TreeMap<Long, Person> byId = new TreeMap<>();
+    private final Map<String, TreeMap<Long, Person>> byCategory = new HashMap<>();
+
+    private long maxBytes = Long.MAX_VALUE;
+    private boolean loaded;
+    // Bumped by every write so a load that raced with a write is not kept
+    private long version;
+
+    synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Fill the cache from a full table read
+     * Ignored if a write happened since versionAtQuery was read
+     */
+    synchronized void load(List<Person> people, long versionAtQuery) {
+        if (loaded || versionAtQuery != version || people.size() * ESTIMATED_BYTES_PER_PERSON > maxBytes) {
+            return;
+        }
+        for (Person person : people) {
+            index(new Person(person));
+        }
+        loaded = true;
+    }
+
+    synchronized List<Person> getAll() {
+        return copyOf(byId.values());
+    }
+
+    synchronized Person get(long id) {
+        Person person = byId.get(id);
+        return person != null ? new Person(person) : null;
+    }
+
+    synchronized List<Person> getByCategory(String category) {
+        TreeMap<Long, Person> people = byCategory.get(category);
+        if (people == null) {
+            return new ArrayList<>();
+        }
+        return copyOf(people.values());
+    }
+
+    synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Add or replace a person after it was written to the database
+     */
+    synchronized void put(Person person) {
+        version++;
+        if (!loaded) {
+            return;
+        }
+        unindex(person.getId());
+        index(new Person(person));
+        if (getSizeBytes() > maxBytes) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Drop a person after it was deleted from the database
+     */
+    synchronized void remove(long id) {
+        version++;
+        if (!loaded) {
+            return;
+        }
+        unindex(id);
+    }
+
+    /**
+     * Forget everything, the next read reloads from the database
+     */
+    synchronized void invalidate() {
+        version++;
+        loaded = false;
+        byId.clear();
+        byCategory.clear();
+    }
+
+    @Override
+    public synchronized long getSizeBytes() {
+        return byId.size() * ESTIMATED_BYTES_PER_PERSON;
+    }
+
+    @Override
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    @Override
+    public synchronized void trimToSize(long targetBytes) {
+        if (getSizeBytes() > targetBytes) {
+            invalidate();
+        }
+    }
+
+    private void index(Person person) {
+        byId.put(person.getId(), person);
+        TreeMap<Long, Person> category = byCategory.get(person.getCategory());
+        if (category == null) {
+            category = new TreeMap<>();
+            byCategory.put(person.getCategory(), category);
+        }
+        category.put(person.getId(), person);
+    }
+
+    private void unindex(long id) {
+        Person old = byId.remove(id);
+        if (old == null) {
+            return;
+        }
+        TreeMap<Long, Person> category = byCategory.get(old.getCategory());
+        if (category != null) {
+            category.remove(id);
+            if (category.isEmpty()) {
+                byCategory.remove(old.getCategory());
+            }
+        }
+    }
+
+    private static List<Person> copyOf(Iterable<Person> people) {
+        List<Person> copies = new ArrayList<>();
+        for (Person person : people) {
+            copies.add(new Person(person));
+        }
+        return copies;
+    }
+}
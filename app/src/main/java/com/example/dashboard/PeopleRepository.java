@@ -0,0 +1,437 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.CancellationSignal;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous access to the Who's Who people data
+ * Runs every WhosWhoDbHelper call on a background thread and
+ * delivers the result to a callback on the main thread
+ */
+public class PeopleRepository {
+
+    private static final String TAG = "PeopleRepository";
+
+    /**
+     * Receives the result of a repository call on the main thread
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        /**
+         * Called on the main thread instead of onResult when the task failed
+         * Callers that disable UI while waiting override this to enable it again.
+         */
+        default void onError(Exception error) {
+        }
+    }
+
+    /**
+     * Told on the main thread after people were added, updated or deleted
+     */
+    public interface Observer {
+        void onPeopleChanged();
+    }
+
+    // Singleton instance
+    private static PeopleRepository sInstance;
+
+    // Readers share a small pool, the database runs in WAL mode so they do not block each other
+    private static final int READER_THREADS = 2;
+
+    private final WhosWhoDbHelper dbHelper;
+    private final ExecutorService readExecutor;
+    private final ExecutorService writeExecutor;
+    private final Handler mainHandler;
+    // Main thread only, maps each observer to the listener registered for it
+    private final Map<Observer, WhosWhoDbHelper.PeopleChangeListener> observers = new HashMap<>();
+
+    /**
+     * Get singleton instance of the repository
+     */
+    public static synchronized PeopleRepository getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PeopleRepository(WhosWhoDbHelper.getInstance(context));
+        }
+        return sInstance;
+    }
+
+    private PeopleRepository(WhosWhoDbHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        this.readExecutor = Executors.newFixedThreadPool(READER_THREADS);
+        // A single writer thread keeps writes in the order they were requested
+        this.writeExecutor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Start observing changes to people, call from the main thread
+     */
+    public void registerObserver(final Observer observer) {
+        if (observers.containsKey(observer)) {
+            return;
+        }
+        WhosWhoDbHelper.PeopleChangeListener listener = new WhosWhoDbHelper.PeopleChangeListener() {
+            @Override
+            public void onPeopleChanged() {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Skip if unregistered while this was queued
+                        if (observers.containsKey(observer)) {
+                            observer.onPeopleChanged();
+                        }
+                    }
+                });
+            }
+        };
+        observers.put(observer, listener);
+        dbHelper.addChangeListener(listener);
+    }
+
+    /**
+     * Stop observing changes to people, call from the main thread
+     */
+    public void unregisterObserver(Observer observer) {
+        WhosWhoDbHelper.PeopleChangeListener listener = observers.remove(observer);
+        if (listener != null) {
+            dbHelper.removeChangeListener(listener);
+        }
+    }
+
+    /**
+     * Load all people
+     */
+    public Future<?> getAllPeople(Callback<List<Person>> callback) {
+        return submit(readExecutor, new Callable<List<Person>>() {
+            @Override
+            public List<Person> call() {
+                return dbHelper.getAllPeople();
+            }
+        }, callback);
+    }
+
+    /**
+     * Load a single person by ID, or null if not found
+     */
+    public Future<?> getPerson(final long id, Callback<Person> callback) {
+        return submit(readExecutor, new Callable<Person>() {
+            @Override
+            public Person call() {
+                return dbHelper.getPerson(id);
+            }
+        }, callback);
+    }
+
+    /**
+     * Load people in a category
+     */
+    public Future<?> getPeopleByCategory(final String category, Callback<List<Person>> callback) {
+        return submit(readExecutor, new Callable<List<Person>>() {
+            @Override
+            public List<Person> call() {
+                return dbHelper.getPeopleByCategory(category);
+            }
+        }, callback);
+    }
+
+    /**
+     * Load the page of people that follows after, ordered by name
+     * Pass null to load the first page
+     */
+    public Future<?> getPeoplePage(final Person after, final int limit,
+                                   Callback<List<Person>> callback) {
+        return submit(readExecutor, new Callable<List<Person>>() {
+            @Override
+            public List<Person> call() {
+                return dbHelper.getPeoplePage(after, limit);
+            }
+        }, callback);
+    }
+
+    /**
+     * Pick random people and wrong answer names for a quiz
+     */
+    public Future<?> sampleQuiz(final int questions, final int distractorsPerQuestion,
+                                Callback<QuizSample> callback) {
+        return submit(readExecutor, new Callable<QuizSample>() {
+            @Override
+            public QuizSample call() {
+                return dbHelper.sampleQuiz(questions, distractorsPerQuestion);
+            }
+        }, callback);
+    }
+
+    /**
+     * Search people by name or relation prefix
+     * Cancel the returned signal when a newer search replaces this one, the query is
+     * aborted and the callback is not called
+     */
+    public CancellationSignal searchPeople(final String query, final int limit,
+                                           final Callback<List<Person>> callback) {
+        final CancellationSignal signal = new CancellationSignal();
+        submit(readExecutor, new Callable<List<Person>>() {
+            @Override
+            public List<Person> call() {
+                signal.throwIfCanceled();
+                return dbHelper.searchPeople(query, limit, signal);
+            }
+        }, new Callback<List<Person>>() {
+            @Override
+            public void onResult(List<Person> people) {
+                if (!signal.isCanceled()) {
+                    callback.onResult(people);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                // A cancelled search fails on purpose, nobody is waiting for it
+                if (!signal.isCanceled()) {
+                    callback.onError(error);
+                }
+            }
+        });
+        return signal;
+    }
+
+    /**
+     * Count the stored people
+     */
+    public Future<?> getPeopleCount(Callback<Integer> callback) {
+        return submit(readExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.getPeopleCount();
+            }
+        }, callback);
+    }
+
+    /**
+     * Add a new person, the callback receives the new row ID or -1 on failure
+     */
+    public Future<?> addPerson(final Person person, Callback<Long> callback) {
+        return submit(writeExecutor, new Callable<Long>() {
+            @Override
+            public Long call() {
+                return dbHelper.addPerson(person);
+            }
+        }, callback);
+    }
+
+    /**
+     * Update a person, the callback receives the number of rows updated
+     */
+    public Future<?> updatePerson(final Person person, Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.updatePerson(person);
+            }
+        }, callback);
+    }
+
+    /**
+     * Delete a person
+     */
+    public Future<?> deletePerson(final Person person, Callback<Void> callback) {
+        return submit(writeExecutor, new Callable<Void>() {
+            @Override
+            public Void call() {
+                dbHelper.deletePerson(person);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Add many people in one transaction, the callback receives the new row IDs
+     */
+    public Future<?> addPeople(final List<Person> people, Callback<long[]> callback) {
+        return submit(writeExecutor, new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                return dbHelper.addPeople(people);
+            }
+        }, callback);
+    }
+
+    /**
+     * Update many people in one transaction, the callback receives the number of rows updated
+     */
+    public Future<?> updatePeople(final List<Person> people, Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.updatePeople(people);
+            }
+        }, callback);
+    }
+
+    /**
+     * Store face regions found for people in one transaction, the callback receives the number of rows updated
+     */
+    public Future<?> updateFaceRegions(final List<Person> people, Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.updateFaceRegions(people);
+            }
+        }, callback);
+    }
+
+    /**
+     * Add extra photos of people in one transaction, the callback receives the number added
+     */
+    public Future<?> addPersonPhotos(final List<PersonPhoto> photos, Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.addPersonPhotos(photos);
+            }
+        }, callback);
+    }
+
+    /**
+     * Record a finished quiz, the callback receives its row ID
+     */
+    public Future<?> recordQuizResult(final QuizResult result, Callback<Long> callback) {
+        return submit(writeExecutor, new Callable<Long>() {
+            @Override
+            public Long call() {
+                return dbHelper.recordQuizResult(result);
+            }
+        }, callback);
+    }
+
+    /**
+     * Load progress over the last 7 days, 30 days and all time
+     * Runs on the writer thread, after any quiz result already queued, so a
+     * quiz that just finished is always included.
+     */
+    public Future<?> getProgressReport(final long today, Callback<ProgressReport> callback) {
+        return submit(writeExecutor, new Callable<ProgressReport>() {
+            @Override
+            public ProgressReport call() {
+                return dbHelper.getProgressReport(today);
+            }
+        }, callback);
+    }
+
+    /**
+     * Schedule the next reviews after a quiz in one transaction, the callback receives the number updated
+     */
+    public Future<?> recordReviews(final List<ReviewOutcome> outcomes, final long now,
+                                   Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.recordReviews(outcomes, now);
+            }
+        }, callback);
+    }
+
+    /**
+     * Record photo check results in one transaction, the callback receives the number of rows updated
+     */
+    public Future<?> updatePhotoStatuses(final List<Person> checked, final Set<Long> brokenIds,
+                                         final long checkedAt, Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.updatePhotoStatuses(checked, brokenIds, checkedAt);
+            }
+        }, callback);
+    }
+
+    /**
+     * Record check results for person_photos rows in one transaction, the callback receives the number of rows updated
+     */
+    public Future<?> updatePersonPhotoStatuses(final List<PersonPhoto> checked, final Set<Long> brokenIds,
+                                               final long checkedAt, Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.updatePersonPhotoStatuses(checked, brokenIds, checkedAt);
+            }
+        }, callback);
+    }
+
+    /**
+     * Delete many people in one transaction, the callback receives the number of rows deleted
+     */
+    public Future<?> deletePeople(final List<Person> people, Callback<Integer> callback) {
+        return submit(writeExecutor, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbHelper.deletePeople(people);
+            }
+        }, callback);
+    }
+
+    /**
+     * Run several database operations as one transaction on the writer thread
+     */
+    public <T> Future<?> runInTransaction(final WhosWhoDbHelper.Transaction<T> transaction,
+                                          Callback<T> callback) {
+        return submit(writeExecutor, new Callable<T>() {
+            @Override
+            public T call() {
+                return dbHelper.runInTransaction(transaction);
+            }
+        }, callback);
+    }
+
+    /**
+     * Run a task on the given executor and post its result, or its failure, to the main thread
+     * The callback may be null when the caller does not need the result
+     */
+    private <T> Future<?> submit(ExecutorService executor, final Callable<T> task,
+                                 final Callback<T> callback) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final T result;
+                try {
+                    result = task.call();
+                } catch (OperationCanceledException e) {
+                    // The caller no longer wants the result
+                    return;
+                } catch (final Exception e) {
+                    Log.e(TAG, "Database task failed", e);
+                    if (callback != null) {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.onError(e);
+                            }
+                        });
+                    }
+                    return;
+                }
+                if (callback == null || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onResult(result);
+                    }
+                });
+            }
+        });
+    }
+}
@@ -9,6 +9,7 @@ public class Person {
     private String photoUri;
     private String category; // "family", "friends", or "relatives"
     private String relation; // Optional: more specific relation
+    private FaceRegion faceRegion; // Null until the photo has been searched for a face
 
     // Default constructor
     public Person() {
@@ -31,6 +32,16 @@ public class Person {
         this.relation = relation;
     }
 
+    // Copy constructor
+    public Person(Person other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.photoUri = other.photoUri;
+        this.category = other.category;
+        this.relation = other.relation;
+        this.faceRegion = other.faceRegion;
+    }
+
     // Getters and setters
     public long getId() {
         return id;
@@ -72,6 +83,14 @@ public class Person {
         this.relation = relation;
     }
 
+    public FaceRegion getFaceRegion() {
+        return faceRegion;
+    }
+
+    public void setFaceRegion(FaceRegion faceRegion) {
+        this.faceRegion = faceRegion;
+    }
+
     @Override
     public String toString() {
         return "Person{" +
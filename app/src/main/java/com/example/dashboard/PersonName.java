@@ -0,0 +1,31 @@
+package com.example.dashboard;
+
+/**
+ * Read model with only a person's ID and name
+ * Used where the photo, category and relation would be loaded for nothing
+ */
+public class PersonName {
+    private final long id;
+    private final String name;
+
+    public PersonName(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "PersonName{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.dashboard;
+
+/**
+ * One of the photos of a person
+ * The photo stored on the Person itself is the main one, shown in the list;
+ * a person can have any number of others, which the quiz picks from.
+ */
+public class PersonPhoto {
+    private long id;
+    private final long personId;
+    private final String photoUri;
+    private final FaceRegion faceRegion; // Null until the photo has been searched for a face
+
+    public PersonPhoto(long personId, String photoUri, FaceRegion faceRegion) {
+        this(0, personId, photoUri, faceRegion);
+    }
+
+    public PersonPhoto(long id, long personId, String photoUri, FaceRegion faceRegion) {
+        this.id = id;
+        this.personId = personId;
+        this.photoUri = photoUri;
+        this.faceRegion = faceRegion;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getPersonId() {
+        return personId;
+    }
+
+    public String getPhotoUri() {
+        return photoUri;
+    }
+
+    public FaceRegion getFaceRegion() {
+        return faceRegion;
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Copies picked photos into app-private storage
+ * Each photo is decoded once, turned upright using its EXIF orientation,
+ * scaled so its longest side is at most MAX_DIMENSION and saved as WebP.
+ * People then point at the copy, so showing them no longer depends on the
+ * gallery file or on storage permissions, and every decode has a known cost.
+ * While the photo is decoded anyway, it is also searched for a face, so
+ * thumbnails can be cropped to the face without a detection pass per decode.
+ * Batches are imported on a small fixed pool, since each import holds a
+ * full decoded photo in memory.
+ */
+public class PhotoImporter {
+
+    private static final String TAG = "PhotoImporter";
+    private static final String PHOTO_DIR = "photos";
+    static final int MAX_DIMENSION = 1280;
+    private static final int WEBP_QUALITY = 85;
+    private static final int IMPORT_THREADS = 2;
+
+    /**
+     * A photo copied into app storage, with the face found in it
+     */
+    public static final class ImportedPhoto {
+        private final String photoUri;
+        private final FaceRegion faceRegion;
+
+        ImportedPhoto(String photoUri, FaceRegion faceRegion) {
+            this.photoUri = photoUri;
+            this.faceRegion = faceRegion;
+        }
+
+        public String getPhotoUri() {
+            return photoUri;
+        }
+
+        /**
+         * Face in the copy, FaceRegion.NONE if there is none
+         */
+        public FaceRegion getFaceRegion() {
+            return faceRegion;
+        }
+    }
+
+    /**
+     * Receives the imported copy on the main thread, or null if the import failed
+     */
+    public interface Callback {
+        void onImported(ImportedPhoto photo);
+    }
+
+    /**
+     * Receives progress and results of a batch import on the main thread
+     */
+    public interface BatchCallback {
+        void onProgress(int done, int total);
+
+        /**
+         * @param photos The copies in the order of the sources, leaving out photos that failed
+         */
+        void onFinished(List<ImportedPhoto> photos);
+    }
+
+    // Singleton instance
+    private static PhotoImporter sInstance;
+
+    private final ContentResolver contentResolver;
+    private final File photoDir;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    /**
+     * Get singleton instance of the photo importer
+     */
+    public static synchronized PhotoImporter getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PhotoImporter(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    PhotoImporter(Context context) {
+        this.contentResolver = context.getContentResolver();
+        this.photoDir = new File(context.getFilesDir(), PHOTO_DIR);
+        this.executor = Executors.newFixedThreadPool(IMPORT_THREADS);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Import a photo in the background
+     */
+    public void importPhoto(final Uri source, final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ImportedPhoto imported = null;
+                try {
+                    imported = importPhotoNow(source);
+                } catch (Exception e) {
+                    // Including a revoked permission or a crashing decoder, the callback must still run
+                    Log.w(TAG, "Could not import " + source, e);
+                }
+                final ImportedPhoto photo = imported;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onImported(photo);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Import many photos in parallel in the background
+     */
+    public void importPhotos(final List<Uri> sources, final BatchCallback callback) {
+        final int total = sources.size();
+        final ImportedPhoto[] imported = new ImportedPhoto[total];
+        // Only touched on the main thread, so progress is reported in order
+        final int[] done = {0};
+        if (total == 0) {
+            callback.onFinished(new ArrayList<ImportedPhoto>());
+            return;
+        }
+        for (int i = 0; i < total; i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        imported[index] = importPhotoNow(sources.get(index));
+                    } catch (Exception e) {
+                        // Counted as a failed photo, the batch still finishes
+                        Log.w(TAG, "Could not import " + sources.get(index), e);
+                    }
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            done[0]++;
+                            callback.onProgress(done[0], total);
+                            if (done[0] == total) {
+                                List<ImportedPhoto> photos = new ArrayList<>();
+                                for (ImportedPhoto photo : imported) {
+                                    if (photo != null) {
+                                        photos.add(photo);
+                                    }
+                                }
+                                callback.onFinished(photos);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Import a photo on the calling thread, which must not be the main thread
+     */
+    ImportedPhoto importPhotoNow(Uri source) throws IOException {
+        Bitmap decoded = BitmapDecoder.decodeSampled(contentResolver, source, MAX_DIMENSION, MAX_DIMENSION);
+        if (decoded == null) {
+            throw new IOException("Not an image: " + source);
+        }
+        Bitmap normalized = normalize(decoded, readOrientation(source));
+        FaceRegion face = FaceLocator.find(normalized);
+
+        photoDir.mkdirs();
+        File file = new File(photoDir, UUID.randomUUID() + ".webp");
+        File temp = new File(photoDir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            normalized.compress(Bitmap.CompressFormat.WEBP_LOSSY, WEBP_QUALITY, out);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not save " + file);
+        }
+        return new ImportedPhoto(Uri.fromFile(file).toString(), face);
+    }
+
+    /**
+     * Delete a copy made by this importer, other URIs are left alone
+     */
+    public void deleteImportedPhoto(String photoUri) {
+        File file = importedFile(photoUri);
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Check whether a photo URI points at a copy made by this importer
+     */
+    public boolean isImported(String photoUri) {
+        return importedFile(photoUri) != null;
+    }
+
+    private File importedFile(String photoUri) {
+        if (photoUri == null) {
+            return null;
+        }
+        Uri uri = Uri.parse(photoUri);
+        if (!ContentResolver.SCHEME_FILE.equals(uri.getScheme()) || uri.getPath() == null) {
+            return null;
+        }
+        File file = new File(uri.getPath());
+        return photoDir.equals(file.getParentFile()) ? file : null;
+    }
+
+    /**
+     * EXIF orientation of the source, or normal if it has none
+     */
+    private int readOrientation(Uri source) {
+        try (InputStream in = contentResolver.openInputStream(source)) {
+            if (in == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * Rotate or flip the bitmap upright and scale it to fit MAX_DIMENSION, in one pass
+     */
+    static Bitmap normalize(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) MAX_DIMENSION / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        matrix.postScale(scale, scale);
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                break;
+        }
+        if (matrix.isIdentity()) {
+            return bitmap;
+        }
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+}
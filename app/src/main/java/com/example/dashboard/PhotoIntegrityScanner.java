@@ -0,0 +1,205 @@
+package com.example.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks in the background that every stored photo URI still opens
+ * A photo deleted from the gallery leaves its person pointing at nothing.
+ * At most once a day, photos not checked for a week are opened in batches;
+ * the results are stored in the database, where broken photos are left out
+ * of quiz sampling, and in BadUriCache, so the image loader stops trying them.
+ * Main photos are checked on people, and every photo of a person on
+ * person_photos, so a broken extra photo is not picked for a question.
+ */
+public class PhotoIntegrityScanner {
+
+    private static final String TAG = "PhotoIntegrityScanner";
+    private static final String PREFS_NAME = "PhotoIntegrityPrefs";
+    private static final String KEY_LAST_SCAN_AT = "last_scan_at";
+    private static final long SCAN_INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long RECHECK_INTERVAL_MS = TimeUnit.DAYS.toMillis(7);
+    private static final int BATCH_SIZE = 50;
+
+    // Singleton instance
+    private static PhotoIntegrityScanner sInstance;
+
+    private final ContentResolver contentResolver;
+    private final SharedPreferences prefs;
+    private final WhosWhoDbHelper dbHelper;
+    private final PeopleRepository peopleRepository;
+    private final BadUriCache badUris;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Get singleton instance of the scanner
+     */
+    public static synchronized PhotoIntegrityScanner getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PhotoIntegrityScanner(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private PhotoIntegrityScanner(Context context) {
+        this.contentResolver = context.getContentResolver();
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.dbHelper = WhosWhoDbHelper.getInstance(context);
+        this.peopleRepository = PeopleRepository.getInstance(context);
+        this.badUris = BadUriCache.getInstance();
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Scan in the background if the last scan was more than a day ago
+     */
+    public void startIfDue() {
+        if (System.currentTimeMillis() - prefs.getLong(KEY_LAST_SCAN_AT, 0) < SCAN_INTERVAL_MS) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (scan()) {
+                        prefs.edit().putLong(KEY_LAST_SCAN_AT, System.currentTimeMillis()).apply();
+                    }
+                } finally {
+                    running.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Check every photo due for a check
+     * @return True if the scan got through all of them
+     */
+    private boolean scan() {
+        long checkedBefore = System.currentTimeMillis() - RECHECK_INTERVAL_MS;
+        return scanMainPhotos(checkedBefore) && scanPersonPhotos(checkedBefore);
+    }
+
+    /**
+     * Check the main photo of every person due for a check
+     */
+    private boolean scanMainPhotos(long checkedBefore) {
+        // A person seen twice was not stored, because the write failed or the photo changed meanwhile
+        Set<Long> checkedIds = new HashSet<>();
+        int broken = 0;
+        while (true) {
+            List<Person> batch = dbHelper.getPeopleWithPhotoCheckDue(checkedBefore, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            Set<Long> brokenIds = new HashSet<>();
+            for (Person person : batch) {
+                if (!checkedIds.add(person.getId())) {
+                    return false;
+                }
+                String photoUri = person.getPhotoUri();
+                if (isReadable(contentResolver, photoUri)) {
+                    badUris.markGood(photoUri);
+                } else {
+                    brokenIds.add(person.getId());
+                    badUris.markBad(photoUri);
+                }
+            }
+            broken += brokenIds.size();
+            try {
+                // Wait for the write so the next query sees this batch as checked
+                peopleRepository.updatePhotoStatuses(batch, brokenIds, System.currentTimeMillis(), null).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Could not store photo statuses", e);
+                return false;
+            }
+        }
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Checked " + checkedIds.size() + " main photos, " + broken + " broken");
+        }
+        return true;
+    }
+
+    /**
+     * Check every person_photos row due for a check
+     */
+    private boolean scanPersonPhotos(long checkedBefore) {
+        // A photo seen twice was not stored, because the write failed
+        Set<Long> checkedIds = new HashSet<>();
+        int broken = 0;
+        while (true) {
+            List<PersonPhoto> batch = dbHelper.getPersonPhotosWithCheckDue(checkedBefore, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            Set<Long> brokenIds = new HashSet<>();
+            for (PersonPhoto photo : batch) {
+                if (!checkedIds.add(photo.getId())) {
+                    return false;
+                }
+                String photoUri = photo.getPhotoUri();
+                if (isReadable(contentResolver, photoUri)) {
+                    badUris.markGood(photoUri);
+                } else {
+                    brokenIds.add(photo.getId());
+                    badUris.markBad(photoUri);
+                }
+            }
+            broken += brokenIds.size();
+            try {
+                // Wait for the write so the next query sees this batch as checked
+                peopleRepository.updatePersonPhotoStatuses(batch, brokenIds, System.currentTimeMillis(), null).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Could not store person photo statuses", e);
+                return false;
+            }
+        }
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Checked " + checkedIds.size() + " person photos, " + broken + " broken");
+        }
+        return true;
+    }
+
+    /**
+     * Whether the photo at photoUri can still be opened, without reading it
+     */
+    static boolean isReadable(ContentResolver resolver, String photoUri) {
+        if (photoUri == null || photoUri.isEmpty()) {
+            return false;
+        }
+        try (ParcelFileDescriptor descriptor = resolver.openFileDescriptor(Uri.parse(photoUri), "r")) {
+            return descriptor != null;
+        } catch (FileNotFoundException | SecurityException e) {
+            // Deleted, or the permission to read it is gone
+            return false;
+        } catch (IOException e) {
+            // Only closing failed, it did open
+            return true;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.dashboard;
+
+import android.content.Context;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the points earned during a quiz in memory until they are saved
+ * Answers only add to a counter. flush() stores everything earned since the
+ * last flush in one write, at the end of the quiz or when it is paused. If the
+ * process dies mid-quiz, only the unsaved answers are lost; the stored daily
+ * points, total and streak always match each other.
+ */
+public class PointsLedger {
+
+    private final DailyPointsStore store;
+    private int pendingPoints;
+
+    public PointsLedger(Context context) {
+        this(DailyPointsStore.getInstance(context));
+    }
+
+    PointsLedger(DailyPointsStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Record a correct answer
+     */
+    public void addCorrectAnswer() {
+        pendingPoints += PointsManager.POINTS_PER_CORRECT_ANSWER;
+    }
+
+    /**
+     * Points earned since the last flush
+     */
+    public int getPendingPoints() {
+        return pendingPoints;
+    }
+
+    /**
+     * Save the points earned since the last flush, does nothing if there are none
+     */
+    public void flush() {
+        if (pendingPoints == 0) {
+            return;
+        }
+        store.addPoints(LocalDate.now().toEpochDay(), pendingPoints);
+        pendingPoints = 0;
+    }
+}
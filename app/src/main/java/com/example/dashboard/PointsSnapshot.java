@@ -0,0 +1,215 @@
+package com.example.dashboard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Immutable state of the points store at one moment
+ * Days are keyed by epoch day and held in a ring of the last RECENT_DAYS
+ * days, weeks in a ring of the last RECENT_WEEKS weeks, and months are kept
+ * for good. Every addition updates all three, so days and weeks can be
+ * dropped once they leave their ring. Reads are array lookups and allocate
+ * nothing. Adding points returns a new snapshot and leaves this one alone,
+ * so snapshots can be shared between threads without locking.
+ */
+public final class PointsSnapshot {
+
+    static final int RECENT_DAYS = 92;
+    static final int RECENT_WEEKS = 104;
+    private static final int NO_DAY = Integer.MIN_VALUE;
+
+    static final PointsSnapshot EMPTY = new PointsSnapshot(0, 0, NO_DAY, NO_DAY, new int[RECENT_DAYS],
+            NO_DAY, new int[RECENT_WEEKS], 0, new int[0]);
+
+    private final int totalPoints;
+    private final int streak;
+    private final int lastActiveDay;
+    private final int newestDay;
+    private final int[] dayPoints;
+    private final int newestWeek;
+    private final int[] weekPoints;
+    private final int firstMonth;
+    private final int[] monthPoints;
+
+    // Takes ownership of the arrays, which must not be changed afterwards
+    private PointsSnapshot(int totalPoints, int streak, int lastActiveDay, int newestDay, int[] dayPoints,
+                           int newestWeek, int[] weekPoints, int firstMonth, int[] monthPoints) {
+        this.totalPoints = totalPoints;
+        this.streak = streak;
+        this.lastActiveDay = lastActiveDay;
+        this.newestDay = newestDay;
+        this.dayPoints = dayPoints;
+        this.newestWeek = newestWeek;
+        this.weekPoints = weekPoints;
+        this.firstMonth = firstMonth;
+        this.monthPoints = monthPoints;
+    }
+
+    /**
+     * Points earned on a day, 0 for days older than RECENT_DAYS before the newest day
+     */
+    public int getPoints(long epochDay) {
+        if (newestDay == NO_DAY || epochDay > newestDay || epochDay <= newestDay - RECENT_DAYS) {
+            return 0;
+        }
+        return dayPoints[Math.floorMod((int) epochDay, RECENT_DAYS)];
+    }
+
+    /**
+     * Points earned in the Monday to Sunday week holding a day, 0 for weeks older than RECENT_WEEKS
+     */
+    public int getWeekPoints(long epochDay) {
+        int week = weekOf((int) epochDay);
+        if (newestWeek == NO_DAY || week > newestWeek || week <= newestWeek - RECENT_WEEKS) {
+            return 0;
+        }
+        return weekPoints[Math.floorMod(week, RECENT_WEEKS)];
+    }
+
+    /**
+     * Points earned in the calendar month holding a day
+     */
+    public int getMonthPoints(long epochDay) {
+        int index = monthOf((int) epochDay) - firstMonth;
+        return index >= 0 && index < monthPoints.length ? monthPoints[index] : 0;
+    }
+
+    public int getTotalPoints() {
+        return totalPoints;
+    }
+
+    /**
+     * Consecutive days with points, up to today, or up to yesterday while today has none yet
+     */
+    public int getCurrentStreak(long today) {
+        return lastActiveDay != NO_DAY && lastActiveDay >= today - 1 ? streak : 0;
+    }
+
+    /**
+     * This snapshot with points added to a day, its week and month, the total and the streak
+     */
+    public PointsSnapshot plus(long epochDay, int points) {
+        int day = (int) epochDay;
+
+        // First points of a day continue yesterday's streak or start a new one
+        int newStreak = streak;
+        int newLastActiveDay = lastActiveDay;
+        if (points > 0 && day > lastActiveDay) {
+            newStreak = lastActiveDay == day - 1 ? streak + 1 : 1;
+            newLastActiveDay = day;
+        }
+
+        int[] newDayPoints = dayPoints.clone();
+        int newNewestDay = newestDay;
+        if (newestDay == NO_DAY || day > newestDay) {
+            advance(newDayPoints, newestDay, day);
+            newNewestDay = day;
+        }
+        if (day > newNewestDay - RECENT_DAYS) {
+            newDayPoints[Math.floorMod(day, RECENT_DAYS)] += points;
+        }
+
+        int week = weekOf(day);
+        int[] newWeekPoints = weekPoints.clone();
+        int newNewestWeek = newestWeek;
+        if (newestWeek == NO_DAY || week > newestWeek) {
+            advance(newWeekPoints, newestWeek, week);
+            newNewestWeek = week;
+        }
+        if (week > newNewestWeek - RECENT_WEEKS) {
+            newWeekPoints[Math.floorMod(week, RECENT_WEEKS)] += points;
+        }
+
+        int month = monthOf(day);
+        int newFirstMonth = firstMonth;
+        int[] newMonthPoints;
+        if (monthPoints.length == 0) {
+            newFirstMonth = month;
+            newMonthPoints = new int[1];
+        } else if (month < firstMonth) {
+            newMonthPoints = new int[monthPoints.length + firstMonth - month];
+            System.arraycopy(monthPoints, 0, newMonthPoints, firstMonth - month, monthPoints.length);
+            newFirstMonth = month;
+        } else {
+            newMonthPoints = Arrays.copyOf(monthPoints, Math.max(monthPoints.length, month - firstMonth + 1));
+        }
+        newMonthPoints[month - newFirstMonth] += points;
+
+        return new PointsSnapshot(totalPoints + points, newStreak, newLastActiveDay, newNewestDay, newDayPoints,
+                newNewestWeek, newWeekPoints, newFirstMonth, newMonthPoints);
+    }
+
+    /**
+     * This snapshot with a different total, for totals carried over from elsewhere
+     */
+    PointsSnapshot withTotalPoints(int total) {
+        return new PointsSnapshot(total, streak, lastActiveDay, newestDay, dayPoints,
+                newestWeek, weekPoints, firstMonth, monthPoints);
+    }
+
+    // Clear the ring slots between the old newest key and the new one
+    private static void advance(int[] ring, int oldNewest, int newest) {
+        if (oldNewest == NO_DAY || newest - oldNewest >= ring.length) {
+            Arrays.fill(ring, 0);
+        } else {
+            for (int key = oldNewest + 1; key <= newest; key++) {
+                ring[Math.floorMod(key, ring.length)] = 0;
+            }
+        }
+    }
+
+    // Epoch day 0 was a Thursday, shift by 3 so weeks start on Monday
+    private static int weekOf(int epochDay) {
+        return Math.floorDiv(epochDay + 3, 7);
+    }
+
+    private static int monthOf(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(totalPoints);
+        out.writeInt(streak);
+        out.writeInt(lastActiveDay);
+        out.writeInt(newestDay);
+        for (int points : dayPoints) {
+            out.writeInt(points);
+        }
+        out.writeInt(newestWeek);
+        for (int points : weekPoints) {
+            out.writeInt(points);
+        }
+        out.writeInt(firstMonth);
+        out.writeInt(monthPoints.length);
+        for (int points : monthPoints) {
+            out.writeInt(points);
+        }
+    }
+
+    static PointsSnapshot readFrom(DataInputStream in) throws IOException {
+        int totalPoints = in.readInt();
+        int streak = in.readInt();
+        int lastActiveDay = in.readInt();
+        int newestDay = in.readInt();
+        int[] dayPoints = new int[RECENT_DAYS];
+        for (int i = 0; i < RECENT_DAYS; i++) {
+            dayPoints[i] = in.readInt();
+        }
+        int newestWeek = in.readInt();
+        int[] weekPoints = new int[RECENT_WEEKS];
+        for (int i = 0; i < RECENT_WEEKS; i++) {
+            weekPoints[i] = in.readInt();
+        }
+        int firstMonth = in.readInt();
+        int[] monthPoints = new int[in.readInt()];
+        for (int i = 0; i < monthPoints.length; i++) {
+            monthPoints[i] = in.readInt();
+        }
+        return new PointsSnapshot(totalPoints, streak, lastActiveDay, newestDay, dayPoints,
+                newestWeek, weekPoints, firstMonth, monthPoints);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.dashboard;
+
+/**
+ * Progress over the last 7 days, the last 30 days and all time, as shown to caregivers
+ */
+public class ProgressReport {
+    private final ProgressSummary lastWeek;
+    private final ProgressSummary lastMonth;
+    private final ProgressSummary allTime;
+
+    public ProgressReport(ProgressSummary lastWeek, ProgressSummary lastMonth, ProgressSummary allTime) {
+        this.lastWeek = lastWeek;
+        this.lastMonth = lastMonth;
+        this.allTime = allTime;
+    }
+
+    public ProgressSummary getLastWeek() {
+        return lastWeek;
+    }
+
+    public ProgressSummary getLastMonth() {
+        return lastMonth;
+    }
+
+    public ProgressSummary getAllTime() {
+        return allTime;
+    }
+}
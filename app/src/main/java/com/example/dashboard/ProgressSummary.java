@@ -0,0 +1,41 @@
+package com.example.dashboard;
+
+/**
+ * Quizzes, answers and points summed over a range of days
+ */
+public class ProgressSummary {
+    private final int quizzes;
+    private final int correctAnswers;
+    private final int questions;
+    private final int points;
+
+    public ProgressSummary(int quizzes, int correctAnswers, int questions, int points) {
+        this.quizzes = quizzes;
+        this.correctAnswers = correctAnswers;
+        this.questions = questions;
+        this.points = points;
+    }
+
+    public int getQuizzes() {
+        return quizzes;
+    }
+
+    public int getCorrectAnswers() {
+        return correctAnswers;
+    }
+
+    public int getQuestions() {
+        return questions;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * Share of questions answered correctly, 0 to 100, or 0 if there were none
+     */
+    public int getAccuracyPercent() {
+        return questions > 0 ? correctAnswers * 100 / questions : 0;
+    }
+}
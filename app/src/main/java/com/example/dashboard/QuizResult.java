@@ -0,0 +1,44 @@
+package com.example.dashboard;
+
+/**
+ * Outcome of one finished quiz, recorded for progress analytics
+ */
+public class QuizResult {
+    private final long finishedAt;
+    private final long epochDay;
+    private final int correctAnswers;
+    private final int questions;
+    private final int points;
+
+    /**
+     * @param finishedAt Wall clock time the quiz finished, in milliseconds
+     * @param epochDay Local day the quiz finished on, as an epoch day
+     */
+    public QuizResult(long finishedAt, long epochDay, int correctAnswers, int questions, int points) {
+        this.finishedAt = finishedAt;
+        this.epochDay = epochDay;
+        this.correctAnswers = correctAnswers;
+        this.questions = questions;
+        this.points = points;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    public int getCorrectAnswers() {
+        return correctAnswers;
+    }
+
+    public int getQuestions() {
+        return questions;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+}
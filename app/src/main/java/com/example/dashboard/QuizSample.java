@@ -0,0 +1,43 @@
+package com.example.dashboard;
+
+import java.util.List;
+
+/**
+ * The people picked for one quiz and the wrong answer names for each question
+ */
+public class QuizSample {
+
+    private final List<Person> people;
+    private final List<List<String>> distractors;
+
+    public QuizSample(List<Person> people, List<List<String>> distractors) {
+        this.people = people;
+        this.distractors = distractors;
+    }
+
+    /**
+     * The people to ask about, in question order
+     */
+    public List<Person> getPeople() {
+        return people;
+    }
+
+    /**
+     * Wrong answer names for the person at the given question index
+     */
+    public List<String> getDistractors(int question) {
+        return distractors.get(question);
+    }
+
+    /**
+     * Check that every question has at least the given number of wrong answers
+     */
+    public boolean hasDistractors(int count) {
+        for (List<String> names : distractors) {
+            if (names.size() < count) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.dashboard;
+
+/**
+ * Whether a person was named correctly in a quiz, used to schedule their next review
+ */
+public class ReviewOutcome {
+    private final long personId;
+    private final boolean correct;
+
+    public ReviewOutcome(long personId, boolean correct) {
+        this.personId = personId;
+        this.correct = correct;
+    }
+
+    public long getPersonId() {
+        return personId;
+    }
+
+    public boolean isCorrect() {
+        return correct;
+    }
+}
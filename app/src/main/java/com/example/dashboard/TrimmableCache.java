@@ -0,0 +1,28 @@
+package com.example.dashboard;
+
+/**
+ * A cache whose memory use the MemoryGovernor can size and trim
+ * Sizes are in bytes, estimated where the cache cannot measure them exactly.
+ */
+interface TrimmableCache {
+
+    /**
+     * Bytes the cache holds now
+     */
+    long getSizeBytes();
+
+    /**
+     * Most bytes the cache may hold
+     */
+    long getMaxBytes();
+
+    /**
+     * Change the most bytes the cache may hold, trimming it if it holds more
+     */
+    void setMaxBytes(long maxBytes);
+
+    /**
+     * Free entries until the cache holds at most targetBytes, without changing its limit
+     */
+    void trimToSize(long targetBytes);
+}
@@ -3,11 +3,24 @@ package com.example.dashboard;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Database helper for the Who's Who game
@@ -15,10 +28,13 @@ import java.util.List;
  */
 public class WhosWhoDbHelper extends SQLiteOpenHelper {
 
-    // Database version and name
-    private static final int DATABASE_VERSION = 1;
+    // Database version and name, bumped by adding a step to WhosWhoMigrations
+    private static final int DATABASE_VERSION = WhosWhoMigrations.LATEST_VERSION;
     private static final String DATABASE_NAME = "WhosWhoDb";
 
+    // Random seeks per wanted row before falling back to a scan, only reached on tiny tables
+    private static final int SAMPLE_ATTEMPTS_PER_ROW = 10;
+
     // Table and column names
     private static final String TABLE_PEOPLE = "people";
     private static final String KEY_ID = "id";
@@ -26,10 +42,205 @@ public class WhosWhoDbHelper extends SQLiteOpenHelper {
     private static final String KEY_PHOTO_URI = "photo_uri";
     private static final String KEY_CATEGORY = "category";
     private static final String KEY_RELATION = "relation";
+    private static final String KEY_FACE_CHECKED = "face_checked";
+    private static final String KEY_FACE_LEFT = "face_left";
+    private static final String KEY_FACE_TOP = "face_top";
+    private static final String KEY_FACE_RIGHT = "face_right";
+    private static final String KEY_FACE_BOTTOM = "face_bottom";
+    private static final String KEY_PHOTO_STATUS = "photo_status";
+    private static final String KEY_PHOTO_CHECKED_AT = "photo_checked_at";
+    private static final String TABLE_PEOPLE_FTS = "people_fts";
+    private static final String TABLE_PERSON_PHOTOS = "person_photos";
+    private static final String KEY_PERSON_ID = "person_id";
+    private static final String TABLE_QUIZ_RESULTS = "quiz_results";
+    private static final String TABLE_DAILY_PROGRESS = "daily_progress";
+    private static final String KEY_EPOCH_DAY = "epoch_day";
+    private static final String TABLE_REVIEW_STATE = "review_state";
+    private static final String KEY_DUE_AT = "due_at";
+    // Paging order of a name, matching the idx_people_sort_name expression
+    private static final String SORT_NAME = "COALESCE(" + KEY_NAME + ", '')";
+
+    // Review intervals double with each correct answer up to this many days
+    private static final int MAX_REVIEW_INTERVAL_DAYS = 64;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Projections for the full Person model and the PersonName read model
+    private static final String[] PERSON_COLUMNS = {KEY_ID, KEY_NAME, KEY_PHOTO_URI, KEY_CATEGORY, KEY_RELATION,
+            KEY_FACE_CHECKED, KEY_FACE_LEFT, KEY_FACE_TOP, KEY_FACE_RIGHT, KEY_FACE_BOTTOM};
+    private static final String[] PERSON_NAME_COLUMNS = {KEY_ID, KEY_NAME};
+    private static final String[] PERSON_PHOTO_COLUMNS = {KEY_ID, KEY_PERSON_ID, KEY_PHOTO_URI,
+            KEY_FACE_CHECKED, KEY_FACE_LEFT, KEY_FACE_TOP, KEY_FACE_RIGHT, KEY_FACE_BOTTOM};
+
+    // Values of photo_status, set by the photo integrity scanner
+    static final int PHOTO_UNCHECKED = 0;
+    static final int PHOTO_OK = 1;
+    static final int PHOTO_BROKEN = 2;
+
+    // People a quiz may ask about or offer as answers, imported photos stay out until they are
+    // named, and people whose photo no longer opens stay out until it is fixed
+    private static final String QUIZ_ELIGIBLE = KEY_NAME + " IS NOT NULL AND " + KEY_NAME + " != ''"
+            + " AND " + KEY_PHOTO_STATUS + " != " + PHOTO_BROKEN;
 
     // Singleton instance
     private static WhosWhoDbHelper sInstance;
 
+    // Share of the app's heap limit the people cache may use
+    private static final float PEOPLE_CACHE_SHARE = 1f / 32;
+
+    // Every person in memory once warmed up, kept in step by the write methods
+    private final PeopleCache peopleCache = new PeopleCache();
+
+    // Told after every committed change to the people table
+    private final List<PeopleChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // Writes made inside this thread's open transaction, published once it commits
+    private final ThreadLocal<PendingWrites> pendingWrites = new ThreadLocal<>();
+
+    /**
+     * A unit of work run inside a single database transaction
+     */
+    public interface Transaction<T> {
+        T run(SQLiteDatabase db);
+    }
+
+    /**
+     * Notified on the writing thread after people were added, updated or deleted
+     */
+    public interface PeopleChangeListener {
+        void onPeopleChanged();
+    }
+
+    /**
+     * Cache changes and notifications held back until the outermost transaction commits
+     * Applying them earlier would let a concurrent reader cache the old rows under
+     * the version the write just bumped.
+     */
+    private static class PendingWrites {
+        // Latest state of each written person by ID, null once deleted
+        final LinkedHashMap<Long, Person> people = new LinkedHashMap<>();
+        boolean peopleChanged;
+        // Set when a write could not be applied to the cache person by person
+        boolean cacheInvalidated;
+        boolean rolledBack;
+    }
+
+    /**
+     * Turns the current cursor row into a model object
+     */
+    interface RowMapper<T> {
+        T map(Cursor cursor);
+    }
+
+    /**
+     * Maps full person rows, resolving column indexes once per cursor
+     */
+    private static final class PersonMapper implements RowMapper<Person> {
+        private final int idIndex;
+        private final int nameIndex;
+        private final int photoUriIndex;
+        private final int categoryIndex;
+        private final int relationIndex;
+        private final int faceCheckedIndex;
+        private final int faceLeftIndex;
+        private final int faceTopIndex;
+        private final int faceRightIndex;
+        private final int faceBottomIndex;
+
+        PersonMapper(Cursor cursor) {
+            idIndex = cursor.getColumnIndexOrThrow(KEY_ID);
+            nameIndex = cursor.getColumnIndexOrThrow(KEY_NAME);
+            photoUriIndex = cursor.getColumnIndexOrThrow(KEY_PHOTO_URI);
+            categoryIndex = cursor.getColumnIndexOrThrow(KEY_CATEGORY);
+            relationIndex = cursor.getColumnIndexOrThrow(KEY_RELATION);
+            faceCheckedIndex = cursor.getColumnIndexOrThrow(KEY_FACE_CHECKED);
+            faceLeftIndex = cursor.getColumnIndexOrThrow(KEY_FACE_LEFT);
+            faceTopIndex = cursor.getColumnIndexOrThrow(KEY_FACE_TOP);
+            faceRightIndex = cursor.getColumnIndexOrThrow(KEY_FACE_RIGHT);
+            faceBottomIndex = cursor.getColumnIndexOrThrow(KEY_FACE_BOTTOM);
+        }
+
+        @Override
+        public Person map(Cursor cursor) {
+            Person person = new Person(
+                    cursor.getLong(idIndex),
+                    cursor.getString(nameIndex),
+                    cursor.getString(photoUriIndex),
+                    cursor.getString(categoryIndex),
+                    cursor.getString(relationIndex)
+            );
+            person.setFaceRegion(mapFace(cursor, faceCheckedIndex,
+                    faceLeftIndex, faceTopIndex, faceRightIndex, faceBottomIndex));
+            return person;
+        }
+    }
+
+    /**
+     * Maps person_photos rows into PersonPhoto
+     */
+    private static final class PersonPhotoMapper implements RowMapper<PersonPhoto> {
+        private final int idIndex;
+        private final int personIdIndex;
+        private final int photoUriIndex;
+        private final int faceCheckedIndex;
+        private final int faceLeftIndex;
+        private final int faceTopIndex;
+        private final int faceRightIndex;
+        private final int faceBottomIndex;
+
+        PersonPhotoMapper(Cursor cursor) {
+            idIndex = cursor.getColumnIndexOrThrow(KEY_ID);
+            personIdIndex = cursor.getColumnIndexOrThrow(KEY_PERSON_ID);
+            photoUriIndex = cursor.getColumnIndexOrThrow(KEY_PHOTO_URI);
+            faceCheckedIndex = cursor.getColumnIndexOrThrow(KEY_FACE_CHECKED);
+            faceLeftIndex = cursor.getColumnIndexOrThrow(KEY_FACE_LEFT);
+            faceTopIndex = cursor.getColumnIndexOrThrow(KEY_FACE_TOP);
+            faceRightIndex = cursor.getColumnIndexOrThrow(KEY_FACE_RIGHT);
+            faceBottomIndex = cursor.getColumnIndexOrThrow(KEY_FACE_BOTTOM);
+        }
+
+        @Override
+        public PersonPhoto map(Cursor cursor) {
+            return new PersonPhoto(
+                    cursor.getLong(idIndex),
+                    cursor.getLong(personIdIndex),
+                    cursor.getString(photoUriIndex),
+                    mapFace(cursor, faceCheckedIndex, faceLeftIndex, faceTopIndex, faceRightIndex, faceBottomIndex)
+            );
+        }
+    }
+
+    /**
+     * Face stored in a row, null if the photo was not searched yet
+     */
+    private static FaceRegion mapFace(Cursor cursor, int checkedIndex,
+                                      int leftIndex, int topIndex, int rightIndex, int bottomIndex) {
+        if (cursor.getInt(checkedIndex) == 0) {
+            return null;
+        }
+        if (cursor.isNull(leftIndex)) {
+            return FaceRegion.NONE;
+        }
+        return new FaceRegion(cursor.getFloat(leftIndex), cursor.getFloat(topIndex),
+                cursor.getFloat(rightIndex), cursor.getFloat(bottomIndex));
+    }
+
+    /**
+     * Maps ID and name rows into PersonName
+     */
+    private static final class PersonNameMapper implements RowMapper<PersonName> {
+        private final int idIndex;
+        private final int nameIndex;
+
+        PersonNameMapper(Cursor cursor) {
+            idIndex = cursor.getColumnIndexOrThrow(KEY_ID);
+            nameIndex = cursor.getColumnIndexOrThrow(KEY_NAME);
+        }
+
+        @Override
+        public PersonName map(Cursor cursor) {
+            return new PersonName(cursor.getLong(idIndex), cursor.getString(nameIndex));
+        }
+    }
+
     /**
      * Get singleton instance of the database helper
      */
@@ -42,141 +253,1017 @@ public class WhosWhoDbHelper extends SQLiteOpenHelper {
 
     // Private constructor to prevent direct instantiation
     private WhosWhoDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+        MemoryGovernor.getInstance(context).register("people", peopleCache, PEOPLE_CACHE_SHARE);
+    }
+
+    // Package-private so tests can open their own database file
+    WhosWhoDbHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        // The connection stays open for the life of the process, so let readers
+        // run alongside a writer instead of waiting on the database lock
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        String CREATE_PEOPLE_TABLE = "CREATE TABLE " + TABLE_PEOPLE + "("
-                + KEY_ID + " INTEGER PRIMARY KEY,"
-                + KEY_NAME + " TEXT,"
-                + KEY_PHOTO_URI + " TEXT,"
-                + KEY_CATEGORY + " TEXT,"
-                + KEY_RELATION + " TEXT"
-                + ")";
-        db.execSQL(CREATE_PEOPLE_TABLE);
+        WhosWhoMigrations.create(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Drop older table if existed
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PEOPLE);
-        // Create tables again
-        onCreate(db);
+        // Step through each version, keeping every stored person
+        WhosWhoMigrations.upgrade(db, oldVersion, newVersion);
+        peopleCache.invalidate();
+    }
+
+    /**
+     * Run several operations as one transaction
+     * Helper methods called from inside the transaction on the same thread join it,
+     * and everything is rolled back if the transaction throws. The people cache and
+     * change listeners only hear about the writes after the outermost transaction commits.
+     */
+    public <T> T runInTransaction(Transaction<T> transaction) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        PendingWrites pending = pendingWrites.get();
+        boolean outermost = pending == null;
+        // Non-exclusive so WAL readers are not blocked while the transaction runs
+        db.beginTransactionNonExclusive();
+        if (outermost) {
+            pending = new PendingWrites();
+            pendingWrites.set(pending);
+        }
+        boolean succeeded = false;
+        try {
+            T result = transaction.run(db);
+            db.setTransactionSuccessful();
+            succeeded = true;
+            return result;
+        } finally {
+            if (!succeeded) {
+                // A failed nested transaction rolls back the outermost one too
+                pending.rolledBack = true;
+            }
+            if (outermost) {
+                pendingWrites.remove();
+            }
+            db.endTransaction();
+            // Only reached once the outermost transaction committed, publish its changes once
+            if (outermost && !pending.rolledBack) {
+                publish(pending);
+            }
+        }
+    }
+
+    /**
+     * Start telling the listener about changes to people
+     */
+    public void addChangeListener(PeopleChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(PeopleChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Called by every write, defers the notification while a transaction is open
+     */
+    private void onPeopleWritten() {
+        PendingWrites pending = pendingWrites.get();
+        if (pending != null) {
+            pending.peopleChanged = true;
+        } else {
+            notifyPeopleChanged();
+        }
+    }
+
+    /**
+     * Put a written person in the cache, once the open transaction commits if there is one
+     */
+    private void cachePut(Person person) {
+        PendingWrites pending = pendingWrites.get();
+        if (pending != null) {
+            pending.people.put(person.getId(), new Person(person));
+        } else {
+            peopleCache.put(person);
+        }
+    }
+
+    /**
+     * Drop a deleted person from the cache, once the open transaction commits if there is one
+     */
+    private void cacheRemove(long id) {
+        PendingWrites pending = pendingWrites.get();
+        if (pending != null) {
+            pending.people.put(id, null);
+        } else {
+            peopleCache.remove(id);
+        }
+    }
+
+    /**
+     * Drop the whole cache after a write it cannot follow, once the open transaction commits if there is one
+     * Also bumps the cache version when nothing is cached, so a full read racing with the write is not kept.
+     */
+    private void cacheInvalidate() {
+        PendingWrites pending = pendingWrites.get();
+        if (pending != null) {
+            pending.cacheInvalidated = true;
+        } else {
+            peopleCache.invalidate();
+        }
+    }
+
+    /**
+     * A person as this thread sees it, including writes its open transaction has not published yet
+     */
+    private Person cachedPerson(long id) {
+        PendingWrites pending = pendingWrites.get();
+        if (pending != null && pending.people.containsKey(id)) {
+            Person person = pending.people.get(id);
+            return person != null ? new Person(person) : null;
+        }
+        return peopleCache.get(id);
+    }
+
+    /**
+     * True if reads on this thread may be answered from the cache
+     * Inside a transaction the thread has to see its own unpublished writes, so it reads the database
+     */
+    private boolean canReadCache() {
+        return pendingWrites.get() == null && peopleCache.isLoaded();
+    }
+
+    private void publish(PendingWrites pending) {
+        for (Map.Entry<Long, Person> entry : pending.people.entrySet()) {
+            if (entry.getValue() != null) {
+                peopleCache.put(entry.getValue());
+            } else {
+                peopleCache.remove(entry.getKey());
+            }
+        }
+        if (pending.cacheInvalidated) {
+            peopleCache.invalidate();
+        }
+        if (pending.peopleChanged) {
+            notifyPeopleChanged();
+        }
+    }
+
+    private void notifyPeopleChanged() {
+        for (PeopleChangeListener listener : changeListeners) {
+            listener.onPeopleChanged();
+        }
     }
 
     /**
      * Add a new person to the database
+     * The generated ID is also set on the person
      */
     public long addPerson(Person person) {
         SQLiteDatabase db = this.getWritableDatabase();
+
+        // Insert row
+        long id = db.insert(TABLE_PEOPLE, null, personValues(person));
+        if (id != -1) {
+            person.setId(id);
+            cachePut(person);
+            onPeopleWritten();
+        }
+        return id;
+    }
+
+    /**
+     * Add many people in a single transaction
+     * The generated IDs are also set on each person
+     * @return The new row IDs, in the same order as the list
+     */
+    public long[] addPeople(final List<Person> people) {
+        return runInTransaction(new Transaction<long[]>() {
+            @Override
+            public long[] run(SQLiteDatabase db) {
+                long[] ids = new long[people.size()];
+                // Compile once and rebind for every row
+                SQLiteStatement statement = db.compileStatement("INSERT INTO " + TABLE_PEOPLE + "("
+                        + KEY_NAME + ", " + KEY_PHOTO_URI + ", " + KEY_CATEGORY + ", " + KEY_RELATION + ", "
+                        + KEY_FACE_CHECKED + ", " + KEY_FACE_LEFT + ", " + KEY_FACE_TOP + ", "
+                        + KEY_FACE_RIGHT + ", " + KEY_FACE_BOTTOM
+                        + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                try {
+                    for (int i = 0; i < ids.length; i++) {
+                        Person person = people.get(i);
+                        bindPersonValues(statement, person);
+                        ids[i] = statement.executeInsert();
+                        person.setId(ids[i]);
+                        cachePut(person);
+                    }
+                } finally {
+                    statement.close();
+                }
+                onPeopleWritten();
+                return ids;
+            }
+        });
+    }
+
+    /**
+     * Update many people in a single transaction
+     * @return The number of rows updated
+     */
+    public int updatePeople(final List<Person> people) {
+        return runInTransaction(new Transaction<Integer>() {
+            @Override
+            public Integer run(SQLiteDatabase db) {
+                int updated = 0;
+                SQLiteStatement statement = db.compileStatement("UPDATE " + TABLE_PEOPLE + " SET "
+                        + KEY_NAME + " = ?, " + KEY_PHOTO_URI + " = ?, " + KEY_CATEGORY + " = ?, "
+                        + KEY_RELATION + " = ?, " + KEY_FACE_CHECKED + " = ?, " + KEY_FACE_LEFT + " = ?, "
+                        + KEY_FACE_TOP + " = ?, " + KEY_FACE_RIGHT + " = ?, " + KEY_FACE_BOTTOM + " = ? "
+                        + "WHERE " + KEY_ID + " = ?");
+                try {
+                    for (Person person : people) {
+                        bindPersonValues(statement, person);
+                        statement.bindLong(10, person.getId());
+                        if (statement.executeUpdateDelete() > 0) {
+                            updated++;
+                            cachePut(person);
+                        }
+                    }
+                } finally {
+                    statement.close();
+                }
+                onPeopleWritten();
+                return updated;
+            }
+        });
+    }
+
+    /**
+     * Delete many people in a single transaction
+     * @return The number of rows deleted
+     */
+    public int deletePeople(final List<Person> people) {
+        return runInTransaction(new Transaction<Integer>() {
+            @Override
+            public Integer run(SQLiteDatabase db) {
+                int deleted = 0;
+                SQLiteStatement statement = db.compileStatement(
+                        "DELETE FROM " + TABLE_PEOPLE + " WHERE " + KEY_ID + " = ?");
+                try {
+                    for (Person person : people) {
+                        statement.bindLong(1, person.getId());
+                        deleted += statement.executeUpdateDelete();
+                        cacheRemove(person.getId());
+                    }
+                } finally {
+                    statement.close();
+                }
+                onPeopleWritten();
+                return deleted;
+            }
+        });
+    }
+
+    /**
+     * Bind name, photo URI, category and relation to parameters 1 to 4, and the face to 5 to 9
+     */
+    private static void bindPersonValues(SQLiteStatement statement, Person person) {
+        statement.clearBindings();
+        bindStringOrNull(statement, 1, person.getName());
+        bindStringOrNull(statement, 2, person.getPhotoUri());
+        bindStringOrNull(statement, 3, person.getCategory());
+        bindStringOrNull(statement, 4, person.getRelation());
+        bindFace(statement, 5, person.getFaceRegion());
+    }
+
+    /**
+     * Bind whether the photo was searched and the face edges, starting at index
+     */
+    private static void bindFace(SQLiteStatement statement, int index, FaceRegion face) {
+        statement.bindLong(index, face != null ? 1 : 0);
+        if (face != null && !face.isEmpty()) {
+            statement.bindDouble(index + 1, face.getLeft());
+            statement.bindDouble(index + 2, face.getTop());
+            statement.bindDouble(index + 3, face.getRight());
+            statement.bindDouble(index + 4, face.getBottom());
+        } else {
+            for (int i = 1; i <= 4; i++) {
+                statement.bindNull(index + i);
+            }
+        }
+    }
+
+    /**
+     * Column values for inserting or updating a whole person
+     */
+    private static ContentValues personValues(Person person) {
         ContentValues values = new ContentValues();
         values.put(KEY_NAME, person.getName());
         values.put(KEY_PHOTO_URI, person.getPhotoUri());
         values.put(KEY_CATEGORY, person.getCategory());
         values.put(KEY_RELATION, person.getRelation());
+        FaceRegion face = person.getFaceRegion();
+        values.put(KEY_FACE_CHECKED, face != null ? 1 : 0);
+        boolean hasFace = face != null && !face.isEmpty();
+        values.put(KEY_FACE_LEFT, hasFace ? face.getLeft() : null);
+        values.put(KEY_FACE_TOP, hasFace ? face.getTop() : null);
+        values.put(KEY_FACE_RIGHT, hasFace ? face.getRight() : null);
+        values.put(KEY_FACE_BOTTOM, hasFace ? face.getBottom() : null);
+        return values;
+    }
 
-        // Insert row
-        long id = db.insert(TABLE_PEOPLE, null, values);
-        db.close();
-        return id;
+    // SQLiteStatement.bindString rejects null values
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     /**
      * Get a person by ID
      */
     public Person getPerson(long id) {
+        if (canReadCache()) {
+            return peopleCache.get(id);
+        }
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(
                 TABLE_PEOPLE,
-                new String[]{KEY_ID, KEY_NAME, KEY_PHOTO_URI, KEY_CATEGORY, KEY_RELATION},
+                PERSON_COLUMNS,
                 KEY_ID + "=?",
                 new String[]{String.valueOf(id)},
                 null, null, null, null);
 
-        if (cursor != null && cursor.moveToFirst()) {
-            Person person = new Person(
-                    cursor.getLong(0),
-                    cursor.getString(1),
-                    cursor.getString(2),
-                    cursor.getString(3),
-                    cursor.getString(4)
-            );
-            cursor.close();
-            return person;
-        }
-        return null;
+        List<Person> people = readAll(cursor, new PersonMapper(cursor));
+        return people.isEmpty() ? null : people.get(0);
     }
 
     /**
      * Get all people in the database
      */
     public List<Person> getAllPeople() {
-        List<Person> peopleList = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_PEOPLE;
-
+        if (canReadCache()) {
+            return peopleCache.getAll();
+        }
+        // Read the version first so a write that lands during the query is not lost
+        long cacheVersion = peopleCache.getVersion();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                Person person = new Person(
-                        cursor.getLong(0),
-                        cursor.getString(1),
-                        cursor.getString(2),
-                        cursor.getString(3),
-                        cursor.getString(4)
-                );
-                peopleList.add(person);
-            } while (cursor.moveToNext());
+        Cursor cursor = db.query(TABLE_PEOPLE, PERSON_COLUMNS, null, null, null, null, null);
+        List<Person> peopleList = readAll(cursor, new PersonMapper(cursor));
+        if (pendingWrites.get() == null) {
+            // Rows read inside a transaction may still be rolled back
+            peopleCache.load(peopleList, cacheVersion);
         }
-        cursor.close();
         return peopleList;
     }
 
+    /**
+     * Get the ID and name of every person, in the same order as getPeoplePage
+     */
+    public List<PersonName> getPeopleNames() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_PEOPLE, PERSON_NAME_COLUMNS, null, null, null, null,
+                SORT_NAME + ", " + KEY_ID);
+        return readAll(cursor, new PersonNameMapper(cursor));
+    }
+
     /**
      * Get people by category
      */
     public List<Person> getPeopleByCategory(String category) {
-        List<Person> peopleList = new ArrayList<>();
+        if (!peopleCache.isLoaded() && pendingWrites.get() == null) {
+            // Warm the cache with one full read, later category reads stay in memory
+            getAllPeople();
+        }
+        if (canReadCache()) {
+            return peopleCache.getByCategory(category);
+        }
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(
                 TABLE_PEOPLE,
-                new String[]{KEY_ID, KEY_NAME, KEY_PHOTO_URI, KEY_CATEGORY, KEY_RELATION},
+                PERSON_COLUMNS,
                 KEY_CATEGORY + "=?",
                 new String[]{category},
                 null, null, null, null);
+        return readAll(cursor, new PersonMapper(cursor));
+    }
 
-        if (cursor.moveToFirst()) {
-            do {
-                Person person = new Person(
-                        cursor.getLong(0),
-                        cursor.getString(1),
-                        cursor.getString(2),
-                        cursor.getString(3),
-                        cursor.getString(4)
-                );
-                peopleList.add(person);
-            } while (cursor.moveToNext());
+    /**
+     * Get one page of people ordered by name
+     * Uses keyset pagination on (name, id), so every page costs the same however deep it is.
+     * People without a name come first, together with those whose name is empty.
+     * @param after The last person of the previous page, or null for the first page
+     * @param limit Maximum number of people to return
+     */
+    public List<Person> getPeoplePage(Person after, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        // A missing name sorts as "", in the order and the predicate alike, so no row is skipped
+        String orderBy = SORT_NAME + ", " + KEY_ID;
+        Cursor cursor;
+        if (after == null) {
+            cursor = db.query(TABLE_PEOPLE, PERSON_COLUMNS, null, null, null, null, orderBy,
+                    String.valueOf(limit));
+        } else {
+            // The name range walks idx_people_sort_name, which is keyed on the same expression
+            String name = after.getName() != null ? after.getName() : "";
+            cursor = db.query(TABLE_PEOPLE, PERSON_COLUMNS,
+                    SORT_NAME + " >= ? AND (" + SORT_NAME + " > ? OR " + KEY_ID + " > ?)",
+                    new String[]{name, name, String.valueOf(after.getId())},
+                    null, null, orderBy, String.valueOf(limit));
+        }
+        return readAll(cursor, new PersonMapper(cursor));
+    }
+
+    /**
+     * Find people whose name or relation has words starting with the words of the query
+     * "aunt mee" matches "Aunt Meera". Runs against the people_fts index, so it stays
+     * fast on large rosters.
+     * @param cancellationSignal Aborts the query if a newer search replaces it, may be null
+     */
+    public List<Person> searchPeople(String query, int limit, CancellationSignal cancellationSignal) {
+        String match = toPrefixMatch(query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(false, TABLE_PEOPLE, PERSON_COLUMNS,
+                KEY_ID + " IN (SELECT docid FROM " + TABLE_PEOPLE_FTS
+                        + " WHERE " + TABLE_PEOPLE_FTS + " MATCH ?)",
+                new String[]{match}, null, null, KEY_NAME + ", " + KEY_ID,
+                String.valueOf(limit), cancellationSignal);
+        return readAll(cursor, new PersonMapper(cursor));
+    }
+
+    /**
+     * Turn free text into an FTS prefix query, or null if it has no words
+     * Punctuation is dropped so user input cannot form FTS operators
+     */
+    static String toPrefixMatch(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Pick people and wrong answer names for a quiz without reading the whole table
+     * @param questions Number of people to ask about
+     * @param distractorsPerQuestion Number of wrong names for each question
+     */
+    public QuizSample sampleQuiz(int questions, int distractorsPerQuestion) {
+        return sampleQuiz(questions, distractorsPerQuestion, System.currentTimeMillis());
+    }
+
+    /**
+     * Pick the people most overdue for review at now, topped up with random people
+     * when fewer than questions are due, and wrong answer names for each
+     */
+    public QuizSample sampleQuiz(int questions, int distractorsPerQuestion, long now) {
+        List<Person> people = getDuePeople(questions, now);
+        if (people.size() < questions) {
+            Set<Long> dueIds = new HashSet<>();
+            for (Person person : people) {
+                dueIds.add(person.getId());
+            }
+            people.addAll(getRandomPeople(questions - people.size(), dueIds));
+        }
+        for (Person person : people) {
+            // The sampled people are fresh copies, so showing another photo leaves the stored main photo alone
+            PersonPhoto photo = getRandomPhoto(person.getId());
+            if (photo != null) {
+                person.setPhotoUri(photo.getPhotoUri());
+                person.setFaceRegion(photo.getFaceRegion());
+            }
+        }
+        List<List<String>> distractors = new ArrayList<>();
+        // Spread distractors across questions when there are enough names to do so
+        Set<String> usedNames = new HashSet<>();
+        for (Person person : people) {
+            Set<String> exclude = new HashSet<>(usedNames);
+            exclude.add(person.getName());
+            List<String> names = getRandomNames(distractorsPerQuestion, exclude);
+            if (names.size() < distractorsPerQuestion) {
+                // Small roster, allow names already used by other questions
+                exclude = new HashSet<>(names);
+                exclude.add(person.getName());
+                names.addAll(getRandomNames(distractorsPerQuestion - names.size(), exclude));
+            }
+            usedNames.addAll(names);
+            distractors.add(names);
+        }
+        return new QuizSample(people, distractors);
+    }
+
+    /**
+     * Get up to count distinct random people who have a name
+     * Seeks to random IDs between the smallest and largest row ID, so the cost
+     * depends on count and not on how many people are stored
+     */
+    public List<Person> getRandomPeople(int count) {
+        return getRandomPeople(count, Collections.<Long>emptySet());
+    }
+
+    /**
+     * Get up to count distinct random people who have a name, leaving out excludeIds
+     */
+    public List<Person> getRandomPeople(int count, Collection<Long> excludeIds) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<Person> peopleList = new ArrayList<>();
+        Set<Long> pickedIds = new HashSet<>(excludeIds);
+
+        long[] idRange = getIdRange(db);
+        if (idRange == null) {
+            return peopleList;
+        }
+        for (int attempt = 0; attempt < count * SAMPLE_ATTEMPTS_PER_ROW
+                && peopleList.size() < count; attempt++) {
+            Cursor cursor = db.query(TABLE_PEOPLE, PERSON_COLUMNS, KEY_ID + " >= ? AND " + QUIZ_ELIGIBLE,
+                    new String[]{String.valueOf(randomIdInRange(idRange))},
+                    null, null, KEY_ID, "1");
+            for (Person person : readAll(cursor, new PersonMapper(cursor))) {
+                if (pickedIds.add(person.getId())) {
+                    peopleList.add(person);
+                }
+            }
+        }
+
+        if (peopleList.size() < count) {
+            // So few rows that seeks kept colliding, a full random order is cheap here
+            Cursor cursor = db.query(TABLE_PEOPLE, PERSON_COLUMNS,
+                    KEY_ID + " NOT IN (" + joinIds(pickedIds) + ") AND " + QUIZ_ELIGIBLE, null,
+                    null, null, "RANDOM()", String.valueOf(count - peopleList.size()));
+            peopleList.addAll(readAll(cursor, new PersonMapper(cursor)));
         }
-        cursor.close();
         return peopleList;
     }
 
+    /**
+     * Get up to count people whose review is due at now, most overdue first
+     * Walks the due_at index from the oldest due time and stops after count
+     * people who can be asked, so the roster is never loaded as a whole.
+     */
+    public List<Person> getDuePeople(int count, long now) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + TextUtils.join(", ", PERSON_COLUMNS)
+                + " FROM " + TABLE_REVIEW_STATE + " JOIN " + TABLE_PEOPLE
+                + " ON " + TABLE_PEOPLE + "." + KEY_ID + " = " + TABLE_REVIEW_STATE + "." + KEY_PERSON_ID
+                + " WHERE " + KEY_DUE_AT + " <= ? AND " + QUIZ_ELIGIBLE
+                + " ORDER BY " + KEY_DUE_AT + " LIMIT ?",
+                new String[]{String.valueOf(now), String.valueOf(count)});
+        return readAll(cursor, new PersonMapper(cursor));
+    }
+
+    /**
+     * Schedule the next review of everyone asked in a quiz, in a single transaction
+     * A correct answer doubles the person's interval, starting at one day and
+     * capped at MAX_REVIEW_INTERVAL_DAYS. A wrong answer makes them due again
+     * at once. Only review_state changes, so the cache and listeners are not told.
+     * @return The number of people updated
+     */
+    public int recordReviews(final List<ReviewOutcome> outcomes, final long now) {
+        return runInTransaction(new Transaction<Integer>() {
+            @Override
+            public Integer run(SQLiteDatabase db) {
+                int updated = 0;
+                // Computed from the stored interval in the same statement, nothing is read first
+                String nextInterval = "CASE WHEN ?1 THEN MIN(MAX(interval_days * 2, 1), "
+                        + MAX_REVIEW_INTERVAL_DAYS + ") ELSE 0 END";
+                SQLiteStatement statement = db.compileStatement("UPDATE " + TABLE_REVIEW_STATE
+                        + " SET last_correct = ?1, interval_days = " + nextInterval + ", "
+                        + KEY_DUE_AT + " = ?2 + " + nextInterval + " * " + DAY_MILLIS
+                        + " WHERE " + KEY_PERSON_ID + " = ?3");
+                try {
+                    for (ReviewOutcome outcome : outcomes) {
+                        statement.clearBindings();
+                        statement.bindLong(1, outcome.isCorrect() ? 1 : 0);
+                        statement.bindLong(2, now);
+                        statement.bindLong(3, outcome.getPersonId());
+                        updated += statement.executeUpdateDelete();
+                    }
+                } finally {
+                    statement.close();
+                }
+                return updated;
+            }
+        });
+    }
+
+    /**
+     * Get up to count distinct random non-empty names, leaving out excludeNames
+     */
+    public List<String> getRandomNames(int count, Collection<String> excludeNames) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Set<String> names = new LinkedHashSet<>();
+
+        long[] idRange = getIdRange(db);
+        if (idRange == null) {
+            return new ArrayList<>(names);
+        }
+        for (int attempt = 0; attempt < count * SAMPLE_ATTEMPTS_PER_ROW
+                && names.size() < count; attempt++) {
+            // Only the name is needed, so skip the photo, category and relation strings
+            Cursor cursor = db.query(TABLE_PEOPLE, PERSON_NAME_COLUMNS, KEY_ID + " >= ? AND " + QUIZ_ELIGIBLE,
+                    new String[]{String.valueOf(randomIdInRange(idRange))},
+                    null, null, KEY_ID, "1");
+            for (PersonName person : readAll(cursor, new PersonNameMapper(cursor))) {
+                String name = person.getName();
+                if (name != null && !excludeNames.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+
+        if (names.size() < count) {
+            Set<String> exclude = new HashSet<>(excludeNames);
+            exclude.addAll(names);
+            Cursor cursor = db.query(true, TABLE_PEOPLE, new String[]{KEY_NAME},
+                    QUIZ_ELIGIBLE, null, null, null, "RANDOM()", null);
+            while (names.size() < count && cursor.moveToNext()) {
+                String name = cursor.getString(0);
+                if (!exclude.contains(name)) {
+                    names.add(name);
+                }
+            }
+            cursor.close();
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Map every row of the cursor, then close it
+     */
+    private static <T> List<T> readAll(Cursor cursor, RowMapper<T> mapper) {
+        List<T> rows = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                rows.add(mapper.map(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Smallest and largest row ID, or null if the table is empty
+     */
+    private static long[] getIdRange(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT MIN(" + KEY_ID + "), MAX(" + KEY_ID + ") FROM "
+                + TABLE_PEOPLE, null);
+        long[] range = null;
+        if (cursor.moveToFirst() && !cursor.isNull(0)) {
+            range = new long[]{cursor.getLong(0), cursor.getLong(1)};
+        }
+        cursor.close();
+        return range;
+    }
+
+    private static long randomIdInRange(long[] idRange) {
+        return idRange[0] + ThreadLocalRandom.current().nextLong(idRange[1] - idRange[0] + 1);
+    }
+
+    private static String joinIds(Collection<Long> ids) {
+        StringBuilder joined = new StringBuilder();
+        for (Long id : ids) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(id);
+        }
+        return joined.toString();
+    }
+
     /**
      * Update a person's details
      */
     public int updatePerson(Person person) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(KEY_NAME, person.getName());
-        values.put(KEY_PHOTO_URI, person.getPhotoUri());
-        values.put(KEY_CATEGORY, person.getCategory());
-        values.put(KEY_RELATION, person.getRelation());
 
         // Update row
-        return db.update(TABLE_PEOPLE, values, KEY_ID + " = ?",
+        int rows = db.update(TABLE_PEOPLE, personValues(person), KEY_ID + " = ?",
                 new String[]{String.valueOf(person.getId())});
+        if (rows > 0) {
+            cachePut(person);
+            onPeopleWritten();
+        }
+        return rows;
+    }
+
+    /**
+     * Get up to limit people whose photo has not been searched for a face yet
+     */
+    public List<Person> getPeopleWithoutFaceCheck(int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_PEOPLE, PERSON_COLUMNS, KEY_FACE_CHECKED + " = 0",
+                null, null, null, KEY_ID, String.valueOf(limit));
+        return readAll(cursor, new PersonMapper(cursor));
+    }
+
+    /**
+     * Store the face regions found for people, in a single transaction
+     * A person whose photo changed since it was searched is left alone, the
+     * new photo is searched on the next pass.
+     * @return The number of rows updated
+     */
+    public int updateFaceRegions(final List<Person> people) {
+        return runInTransaction(new Transaction<Integer>() {
+            @Override
+            public Integer run(SQLiteDatabase db) {
+                int updated = 0;
+                SQLiteStatement statement = db.compileStatement("UPDATE " + TABLE_PEOPLE + " SET "
+                        + KEY_FACE_CHECKED + " = ?, " + KEY_FACE_LEFT + " = ?, " + KEY_FACE_TOP + " = ?, "
+                        + KEY_FACE_RIGHT + " = ?, " + KEY_FACE_BOTTOM + " = ? "
+                        + "WHERE " + KEY_ID + " = ? AND " + KEY_PHOTO_URI + " IS ?");
+                try {
+                    for (Person person : people) {
+                        statement.clearBindings();
+                        bindFace(statement, 1, person.getFaceRegion());
+                        statement.bindLong(6, person.getId());
+                        bindStringOrNull(statement, 7, person.getPhotoUri());
+                        if (statement.executeUpdateDelete() > 0) {
+                            updated++;
+                            // Only the face changed, keep the rest of the cached person
+                            Person cached = cachedPerson(person.getId());
+                            if (cached != null) {
+                                cached.setFaceRegion(person.getFaceRegion());
+                                cachePut(cached);
+                            } else {
+                                // Not cached, the row still changed under any load in progress
+                                cacheInvalidate();
+                            }
+                        }
+                    }
+                } finally {
+                    statement.close();
+                }
+                if (updated > 0) {
+                    onPeopleWritten();
+                }
+                return updated;
+            }
+        });
+    }
+
+    /**
+     * Get up to limit people whose photo was last checked before checkedBefore, least recently checked first
+     * Photos never checked count as checked at time 0.
+     */
+    public List<Person> getPeopleWithPhotoCheckDue(long checkedBefore, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_PEOPLE, PERSON_COLUMNS, KEY_PHOTO_CHECKED_AT + " < ?",
+                new String[]{String.valueOf(checkedBefore)}, null, null,
+                KEY_PHOTO_CHECKED_AT, String.valueOf(limit));
+        return readAll(cursor, new PersonMapper(cursor));
+    }
+
+    /**
+     * Record the results of a photo check, in a single transaction
+     * A person whose photo changed since it was checked is left alone. Only
+     * quiz sampling reads the status, so the cache and listeners are not told.
+     * @param brokenIds IDs of the checked people whose photo could not be opened
+     * @return The number of rows updated
+     */
+    public int updatePhotoStatuses(final List<Person> checked, final Set<Long> brokenIds, final long checkedAt) {
+        return runInTransaction(new Transaction<Integer>() {
+            @Override
+            public Integer run(SQLiteDatabase db) {
+                int updated = 0;
+                SQLiteStatement statement = db.compileStatement("UPDATE " + TABLE_PEOPLE + " SET "
+                        + KEY_PHOTO_STATUS + " = ?, " + KEY_PHOTO_CHECKED_AT + " = ? "
+                        + "WHERE " + KEY_ID + " = ? AND " + KEY_PHOTO_URI + " IS ?");
+                try {
+                    for (Person person : checked) {
+                        statement.clearBindings();
+                        statement.bindLong(1, brokenIds.contains(person.getId()) ? PHOTO_BROKEN : PHOTO_OK);
+                        statement.bindLong(2, checkedAt);
+                        statement.bindLong(3, person.getId());
+                        bindStringOrNull(statement, 4, person.getPhotoUri());
+                        updated += statement.executeUpdateDelete();
+                    }
+                } finally {
+                    statement.close();
+                }
+                return updated;
+            }
+        });
+    }
+
+    /**
+     * Get up to limit photos last checked before checkedBefore, least recently checked first
+     * Covers every photo of every person, the main photos included.
+     */
+    public List<PersonPhoto> getPersonPhotosWithCheckDue(long checkedBefore, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_PERSON_PHOTOS, PERSON_PHOTO_COLUMNS, KEY_PHOTO_CHECKED_AT + " < ?",
+                new String[]{String.valueOf(checkedBefore)}, null, null,
+                KEY_PHOTO_CHECKED_AT, String.valueOf(limit));
+        return readAll(cursor, new PersonPhotoMapper(cursor));
+    }
+
+    /**
+     * Record the results of a check of person_photos rows, in a single transaction
+     * Only random photo picks read the status, so the cache and listeners are not told.
+     * @param brokenIds IDs of the checked photos that could not be opened
+     * @return The number of rows updated
+     */
+    public int updatePersonPhotoStatuses(final List<PersonPhoto> checked, final Set<Long> brokenIds,
+                                         final long checkedAt) {
+        return runInTransaction(new Transaction<Integer>() {
+            @Override
+            public Integer run(SQLiteDatabase db) {
+                int updated = 0;
+                SQLiteStatement statement = db.compileStatement("UPDATE " + TABLE_PERSON_PHOTOS + " SET "
+                        + KEY_PHOTO_STATUS + " = ?, " + KEY_PHOTO_CHECKED_AT + " = ? WHERE " + KEY_ID + " = ?");
+                try {
+                    for (PersonPhoto photo : checked) {
+                        statement.bindLong(1, brokenIds.contains(photo.getId()) ? PHOTO_BROKEN : PHOTO_OK);
+                        statement.bindLong(2, checkedAt);
+                        statement.bindLong(3, photo.getId());
+                        updated += statement.executeUpdateDelete();
+                    }
+                } finally {
+                    statement.close();
+                }
+                return updated;
+            }
+        });
+    }
+
+    /**
+     * Add extra photos of people, in a single transaction
+     * The generated IDs are also set on each photo. The main photo of each
+     * person is unchanged, so the cache and listeners are not told.
+     * @return The number of photos added
+     */
+    public int addPersonPhotos(final List<PersonPhoto> photos) {
+        return runInTransaction(new Transaction<Integer>() {
+            @Override
+            public Integer run(SQLiteDatabase db) {
+                int added = 0;
+                // Skips photos of people deleted since the photos were picked
+                SQLiteStatement statement = db.compileStatement("INSERT INTO " + TABLE_PERSON_PHOTOS + "("
+                        + KEY_PERSON_ID + ", " + KEY_PHOTO_URI + ", " + KEY_FACE_CHECKED + ", "
+                        + KEY_FACE_LEFT + ", " + KEY_FACE_TOP + ", " + KEY_FACE_RIGHT + ", " + KEY_FACE_BOTTOM
+                        + ") SELECT ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM " + TABLE_PEOPLE
+                        + " WHERE " + KEY_ID + " = ?)");
+                try {
+                    for (PersonPhoto photo : photos) {
+                        statement.clearBindings();
+                        statement.bindLong(1, photo.getPersonId());
+                        statement.bindString(2, photo.getPhotoUri());
+                        bindFace(statement, 3, photo.getFaceRegion());
+                        statement.bindLong(8, photo.getPersonId());
+                        long id = statement.executeInsert();
+                        if (id != -1) {
+                            photo.setId(id);
+                            added++;
+                        }
+                    }
+                } finally {
+                    statement.close();
+                }
+                return added;
+            }
+        });
+    }
+
+    /**
+     * Get all photos of a person, the main photo first
+     */
+    public List<PersonPhoto> getPersonPhotos(long personId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_PERSON_PHOTOS, PERSON_PHOTO_COLUMNS, KEY_PERSON_ID + " = ?",
+                new String[]{String.valueOf(personId)}, null, null, KEY_ID);
+        return readAll(cursor, new PersonPhotoMapper(cursor));
+    }
+
+    /**
+     * Get one of a person's photos at random, or null if they have none that opens
+     * Only the photo IDs are read from the idx_person_photos_usable index, then
+     * a single photo row is loaded, however many photos the person has.
+     * Photos the integrity scanner found broken are never picked.
+     */
+    public PersonPhoto getRandomPhoto(long personId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long[] photoIds = getPhotoIds(db, personId);
+        if (photoIds.length == 0) {
+            return null;
+        }
+        long photoId = photoIds[ThreadLocalRandom.current().nextInt(photoIds.length)];
+        Cursor cursor = db.query(TABLE_PERSON_PHOTOS, PERSON_PHOTO_COLUMNS, KEY_ID + " = ?",
+                new String[]{String.valueOf(photoId)}, null, null, null);
+        List<PersonPhoto> photos = readAll(cursor, new PersonPhotoMapper(cursor));
+        return photos.isEmpty() ? null : photos.get(0);
+    }
+
+    private static long[] getPhotoIds(SQLiteDatabase db, long personId) {
+        // The status test is written out as in the partial index, so SQLite can use it
+        Cursor cursor = db.query(TABLE_PERSON_PHOTOS, new String[]{KEY_ID},
+                KEY_PERSON_ID + " = ? AND " + KEY_PHOTO_STATUS + " != " + PHOTO_BROKEN,
+                new String[]{String.valueOf(personId)}, null, null, null);
+        try {
+            long[] ids = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+            }
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Record a finished quiz and add it to the running totals, in a single transaction
+     * Results normally land on the newest day, so only that day's row is
+     * touched. A result for an earlier day also moves the totals of every
+     * later day, which only happens when the clock was turned back.
+     * @return The row ID of the result
+     */
+    public long recordQuizResult(final QuizResult result) {
+        return runInTransaction(new Transaction<Long>() {
+            @Override
+            public Long run(SQLiteDatabase db) {
+                ContentValues values = new ContentValues();
+                values.put("finished_at", result.getFinishedAt());
+                values.put(KEY_EPOCH_DAY, result.getEpochDay());
+                values.put("correct", result.getCorrectAnswers());
+                values.put("questions", result.getQuestions());
+                values.put("points", result.getPoints());
+                long id = db.insert(TABLE_QUIZ_RESULTS, null, values);
+
+                // A day's first result starts its row from the totals of the day before
+                long[] before = progressTotals(db, KEY_EPOCH_DAY + " < ?", result.getEpochDay());
+                ContentValues day = new ContentValues();
+                day.put(KEY_EPOCH_DAY, result.getEpochDay());
+                day.put("total_quizzes", before[0]);
+                day.put("total_correct", before[1]);
+                day.put("total_questions", before[2]);
+                day.put("total_points", before[3]);
+                db.insertWithOnConflict(TABLE_DAILY_PROGRESS, null, day, SQLiteDatabase.CONFLICT_IGNORE);
+
+                Object[] args = {result.getCorrectAnswers(), result.getQuestions(), result.getPoints(),
+                        result.getEpochDay()};
+                db.execSQL("UPDATE " + TABLE_DAILY_PROGRESS + " SET quizzes = quizzes + 1, "
+                        + "correct = correct + ?, questions = questions + ?, points = points + ? "
+                        + "WHERE " + KEY_EPOCH_DAY + " = ?", args);
+                db.execSQL("UPDATE " + TABLE_DAILY_PROGRESS + " SET total_quizzes = total_quizzes + 1, "
+                        + "total_correct = total_correct + ?, total_questions = total_questions + ?, "
+                        + "total_points = total_points + ? "
+                        + "WHERE " + KEY_EPOCH_DAY + " >= ?", args);
+                return id;
+            }
+        });
+    }
+
+    /**
+     * Sum the quiz results from fromDay to toDay, both included
+     * Two primary key lookups, however long the history is.
+     */
+    public ProgressSummary getProgress(long fromDay, long toDay) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long[] end = progressTotals(db, KEY_EPOCH_DAY + " <= ?", toDay);
+        long[] start = progressTotals(db, KEY_EPOCH_DAY + " < ?", fromDay);
+        return new ProgressSummary((int) (end[0] - start[0]), (int) (end[1] - start[1]),
+                (int) (end[2] - start[2]), (int) (end[3] - start[3]));
+    }
+
+    /**
+     * Progress over the 7 and 30 days up to today, and over all time
+     */
+    public ProgressReport getProgressReport(long today) {
+        return new ProgressReport(getProgress(today - 6, today), getProgress(today - 29, today),
+                getProgress(Long.MIN_VALUE, today));
+    }
+
+    /**
+     * Running totals of quizzes, correct answers, questions and points on the
+     * latest day matching the condition, zeros if there is none
+     */
+    private static long[] progressTotals(SQLiteDatabase db, String dayCondition, long epochDay) {
+        Cursor cursor = db.rawQuery("SELECT total_quizzes, total_correct, total_questions, total_points FROM "
+                + TABLE_DAILY_PROGRESS + " WHERE " + dayCondition + " ORDER BY " + KEY_EPOCH_DAY + " DESC LIMIT 1",
+                new String[]{String.valueOf(epochDay)});
+        long[] totals = new long[4];
+        try {
+            if (cursor.moveToFirst()) {
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] = cursor.getLong(i);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return totals;
     }
 
     /**
@@ -186,18 +1273,19 @@ public class WhosWhoDbHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_PEOPLE, KEY_ID + " = ?",
                 new String[]{String.valueOf(person.getId())});
-        db.close();
+        cacheRemove(person.getId());
+        onPeopleWritten();
     }
 
     /**
      * Get count of people
      */
     public int getPeopleCount() {
-        String countQuery = "SELECT * FROM " + TABLE_PEOPLE;
+        if (canReadCache()) {
+            return peopleCache.size();
+        }
+        // Count in SQLite rather than warming the cache just for a number
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(countQuery, null);
-        int count = cursor.getCount();
-        cursor.close();
-        return count;
+        return (int) DatabaseUtils.queryNumEntries(db, TABLE_PEOPLE);
     }
 }
@@ -0,0 +1,282 @@
+package com.example.dashboard;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Schema history of the Who's Who database
+ * Every version bump adds one Migration here. New installs create the
+ * version 1 schema and replay every step, so they end up with exactly
+ * the same schema as upgraded installs.
+ */
+final class WhosWhoMigrations {
+
+    // Version 1 schema, frozen here because later steps build on it
+    static final String CREATE_PEOPLE_V1 = "CREATE TABLE people("
+            + "id INTEGER PRIMARY KEY,"
+            + "name TEXT,"
+            + "photo_uri TEXT,"
+            + "category TEXT,"
+            + "relation TEXT"
+            + ")";
+
+    /**
+     * Version 1 to 2: index category lookups and name ordering
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_people_category ON people(category)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_people_name ON people(name)");
+        }
+    };
+
+    /**
+     * Version 2 to 3: full text index over name and relation for the search box
+     * The index stores no copy of the text, triggers keep it in step with people
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE people_fts USING fts4(content=\"people\", name, relation)");
+            db.execSQL("INSERT INTO people_fts(people_fts) VALUES('rebuild')");
+            db.execSQL("CREATE TRIGGER people_fts_before_update BEFORE UPDATE ON people BEGIN "
+                    + "DELETE FROM people_fts WHERE docid = old.id; END");
+            db.execSQL("CREATE TRIGGER people_fts_before_delete BEFORE DELETE ON people BEGIN "
+                    + "DELETE FROM people_fts WHERE docid = old.id; END");
+            db.execSQL("CREATE TRIGGER people_fts_after_update AFTER UPDATE ON people BEGIN "
+                    + "INSERT INTO people_fts(docid, name, relation) "
+                    + "VALUES (new.id, new.name, new.relation); END");
+            db.execSQL("CREATE TRIGGER people_fts_after_insert AFTER INSERT ON people BEGIN "
+                    + "INSERT INTO people_fts(docid, name, relation) "
+                    + "VALUES (new.id, new.name, new.relation); END");
+        }
+    };
+
+    /**
+     * Version 3 to 4: face region found in each photo, and whether it was searched yet
+     * A searched photo without a face has face_checked set and no region. The
+     * search index triggers are narrowed to name and relation changes, so
+     * storing a face does not rewrite the index.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE people ADD COLUMN face_checked INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE people ADD COLUMN face_left REAL");
+            db.execSQL("ALTER TABLE people ADD COLUMN face_top REAL");
+            db.execSQL("ALTER TABLE people ADD COLUMN face_right REAL");
+            db.execSQL("ALTER TABLE people ADD COLUMN face_bottom REAL");
+            // Lets the backfill find unsearched photos without scanning everyone
+            db.execSQL("CREATE INDEX idx_people_face_unchecked ON people(id) WHERE face_checked = 0");
+
+            db.execSQL("DROP TRIGGER people_fts_before_update");
+            db.execSQL("DROP TRIGGER people_fts_after_update");
+            db.execSQL("CREATE TRIGGER people_fts_before_update BEFORE UPDATE OF name, relation ON people BEGIN "
+                    + "DELETE FROM people_fts WHERE docid = old.id; END");
+            db.execSQL("CREATE TRIGGER people_fts_after_update AFTER UPDATE OF name, relation ON people BEGIN "
+                    + "INSERT INTO people_fts(docid, name, relation) "
+                    + "VALUES (new.id, new.name, new.relation); END");
+        }
+    };
+
+    /**
+     * Version 4 to 5: result of the last photo integrity check
+     * Changing a person's photo resets the result, so the new photo is checked
+     * on the next scan.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE people ADD COLUMN photo_status INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE people ADD COLUMN photo_checked_at INTEGER NOT NULL DEFAULT 0");
+            // Lets the scanner find photos due for a check without scanning everyone
+            db.execSQL("CREATE INDEX idx_people_photo_checked ON people(photo_checked_at)");
+            db.execSQL("CREATE TRIGGER people_photo_changed AFTER UPDATE OF photo_uri ON people "
+                    + "WHEN old.photo_uri IS NOT new.photo_uri BEGIN "
+                    + "UPDATE people SET photo_status = 0, photo_checked_at = 0 WHERE id = new.id; END");
+        }
+    };
+
+    /**
+     * Version 5 to 6: any number of photos per person
+     * Every person's existing photo becomes their first row in person_photos.
+     * The photo and face on people stay as the main photo, and triggers copy
+     * changes to them into person_photos, so code that only knows about the
+     * main photo keeps both tables in step.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE person_photos("
+                    + "id INTEGER PRIMARY KEY,"
+                    + "person_id INTEGER NOT NULL,"
+                    + "photo_uri TEXT NOT NULL,"
+                    + "face_checked INTEGER NOT NULL DEFAULT 0,"
+                    + "face_left REAL,"
+                    + "face_top REAL,"
+                    + "face_right REAL,"
+                    + "face_bottom REAL"
+                    + ")");
+            // Also covers the photo ID lookup, every index entry carries the row ID
+            db.execSQL("CREATE INDEX idx_person_photos_person ON person_photos(person_id)");
+            db.execSQL("INSERT INTO person_photos(person_id, photo_uri, face_checked, "
+                    + "face_left, face_top, face_right, face_bottom) "
+                    + "SELECT id, photo_uri, face_checked, face_left, face_top, face_right, face_bottom "
+                    + "FROM people WHERE photo_uri IS NOT NULL AND photo_uri != ''");
+
+            db.execSQL("CREATE TRIGGER person_photos_after_insert AFTER INSERT ON people "
+                    + "WHEN new.photo_uri IS NOT NULL AND new.photo_uri != '' BEGIN "
+                    + "INSERT INTO person_photos(person_id, photo_uri, face_checked, "
+                    + "face_left, face_top, face_right, face_bottom) "
+                    + "VALUES (new.id, new.photo_uri, new.face_checked, "
+                    + "new.face_left, new.face_top, new.face_right, new.face_bottom); END");
+            db.execSQL("CREATE TRIGGER person_photos_after_photo_update AFTER UPDATE OF photo_uri ON people "
+                    + "WHEN old.photo_uri IS NOT new.photo_uri BEGIN "
+                    + "DELETE FROM person_photos WHERE person_id = old.id AND photo_uri IS old.photo_uri; "
+                    + "INSERT INTO person_photos(person_id, photo_uri, face_checked, "
+                    + "face_left, face_top, face_right, face_bottom) "
+                    + "SELECT new.id, new.photo_uri, new.face_checked, "
+                    + "new.face_left, new.face_top, new.face_right, new.face_bottom "
+                    + "WHERE new.photo_uri IS NOT NULL AND new.photo_uri != ''; END");
+            db.execSQL("CREATE TRIGGER person_photos_after_face_update AFTER UPDATE OF "
+                    + "face_checked, face_left, face_top, face_right, face_bottom ON people BEGIN "
+                    + "UPDATE person_photos SET face_checked = new.face_checked, face_left = new.face_left, "
+                    + "face_top = new.face_top, face_right = new.face_right, face_bottom = new.face_bottom "
+                    + "WHERE person_id = new.id AND photo_uri IS new.photo_uri; END");
+            db.execSQL("CREATE TRIGGER person_photos_after_delete AFTER DELETE ON people BEGIN "
+                    + "DELETE FROM person_photos WHERE person_id = old.id; END");
+        }
+    };
+
+    /**
+     * Version 6 to 7: quiz results and per-day progress with running totals
+     * Each daily_progress row holds the day's own counts and the totals of
+     * every day up to and including it, so the sum over any range of days is
+     * the difference of two rows found through the primary key.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE quiz_results("
+                    + "id INTEGER PRIMARY KEY,"
+                    + "finished_at INTEGER NOT NULL,"
+                    + "epoch_day INTEGER NOT NULL,"
+                    + "correct INTEGER NOT NULL,"
+                    + "questions INTEGER NOT NULL,"
+                    + "points INTEGER NOT NULL"
+                    + ")");
+            db.execSQL("CREATE TABLE daily_progress("
+                    + "epoch_day INTEGER PRIMARY KEY,"
+                    + "quizzes INTEGER NOT NULL DEFAULT 0,"
+                    + "correct INTEGER NOT NULL DEFAULT 0,"
+                    + "questions INTEGER NOT NULL DEFAULT 0,"
+                    + "points INTEGER NOT NULL DEFAULT 0,"
+                    + "total_quizzes INTEGER NOT NULL DEFAULT 0,"
+                    + "total_correct INTEGER NOT NULL DEFAULT 0,"
+                    + "total_questions INTEGER NOT NULL DEFAULT 0,"
+                    + "total_points INTEGER NOT NULL DEFAULT 0"
+                    + ")");
+        }
+    };
+
+    /**
+     * Version 7 to 8: spaced repetition state per person
+     * due_at is a wall clock time in milliseconds, 0 for people never asked,
+     * who are therefore due first. Triggers keep one row per person.
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE review_state("
+                    + "person_id INTEGER PRIMARY KEY,"
+                    + "last_correct INTEGER NOT NULL DEFAULT 0,"
+                    + "interval_days INTEGER NOT NULL DEFAULT 0,"
+                    + "due_at INTEGER NOT NULL DEFAULT 0"
+                    + ")");
+            db.execSQL("CREATE INDEX idx_review_state_due ON review_state(due_at)");
+            db.execSQL("INSERT INTO review_state(person_id) SELECT id FROM people");
+            db.execSQL("CREATE TRIGGER review_state_after_insert AFTER INSERT ON people BEGIN "
+                    + "INSERT INTO review_state(person_id) VALUES (new.id); END");
+            db.execSQL("CREATE TRIGGER review_state_after_delete AFTER DELETE ON people BEGIN "
+                    + "DELETE FROM review_state WHERE person_id = old.id; END");
+        }
+    };
+
+    /**
+     * Version 8 to 9: index the name order used for paging
+     * Pages sort a missing name as the empty string, this index matches that order
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX idx_people_sort_name ON people(COALESCE(name, ''), id)");
+        }
+    };
+
+    /**
+     * Version 9 to 10: result of the last photo integrity check for every photo
+     * Rows of person_photos are never updated in place, a changed photo is a
+     * new row, so new photos start unchecked without a trigger. Random photo
+     * picks read the partial index, which leaves out broken photos.
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE person_photos ADD COLUMN photo_status INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE person_photos ADD COLUMN photo_checked_at INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX idx_person_photos_checked ON person_photos(photo_checked_at)");
+            db.execSQL("CREATE INDEX idx_person_photos_usable ON person_photos(person_id) WHERE photo_status != 2");
+        }
+    };
+
+    // Ordered by start version, one entry per version bump
+    private static final Migration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9,
+            MIGRATION_9_10,
+    };
+
+    /**
+     * Latest schema version, one past the last migration
+     */
+    static final int LATEST_VERSION = 1 + ALL.length;
+
+    private WhosWhoMigrations() {
+    }
+
+    /**
+     * Create the latest schema on an empty database
+     */
+    static void create(SQLiteDatabase db) {
+        db.execSQL(CREATE_PEOPLE_V1);
+        upgrade(db, 1, LATEST_VERSION);
+    }
+
+    /**
+     * Run each step from oldVersion up to newVersion in order
+     */
+    static void upgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (int version = oldVersion; version < newVersion; version++) {
+            Migration migration = find(version);
+            if (migration == null) {
+                throw new IllegalStateException("No migration from version " + version);
+            }
+            migration.migrate(db);
+        }
+    }
+
+    private static Migration find(int startVersion) {
+        for (Migration migration : ALL) {
+            if (migration.startVersion == startVersion) {
+                return migration;
+            }
+        }
+        return null;
+    }
+}
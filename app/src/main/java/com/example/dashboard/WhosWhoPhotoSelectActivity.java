@@ -1,49 +1,176 @@
 package com.example.dashboard;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageView;
+import android.widget.ProgressBar;
 import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.PickVisualMediaRequest;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Activity for selecting and managing photos for the Who's Who game
  */
 public class WhosWhoPhotoSelectActivity extends AppCompatActivity {
 
-    private WhosWhoDbHelper dbHelper;
+    // People fetched per query, and how close to the end of the list the next page is requested
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 10;
+
+    // Wait this long after the last keystroke before searching
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    private static final int SEARCH_LIMIT = 100;
+
+    // Most photos the picker lets the user import at once
+    private static final int MAX_IMPORT_PHOTOS = 50;
+
+    // Rows are the same person when the IDs match, and unchanged when every shown field matches
+    private static final DiffUtil.ItemCallback<Person> PERSON_DIFF = new DiffUtil.ItemCallback<Person>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Person oldPerson, @NonNull Person newPerson) {
+            return oldPerson.getId() == newPerson.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Person oldPerson, @NonNull Person newPerson) {
+            return Objects.equals(oldPerson.getName(), newPerson.getName())
+                    && Objects.equals(oldPerson.getPhotoUri(), newPerson.getPhotoUri())
+                    && Objects.equals(oldPerson.getFaceRegion(), newPerson.getFaceRegion())
+                    && Objects.equals(oldPerson.getCategory(), newPerson.getCategory())
+                    && Objects.equals(oldPerson.getRelation(), newPerson.getRelation());
+        }
+    };
+
+    private PeopleRepository peopleRepository;
+    private ImageLoader imageLoader;
+    private PhotoImporter photoImporter;
     private RecyclerView peopleRecyclerView;
     private PersonAdapter adapter;
+    private Button importButton;
+    private ProgressBar importProgressBar;
+    private ActivityResultLauncher<PickVisualMediaRequest> pickPhotosLauncher;
+    private ActivityResultLauncher<PickVisualMediaRequest> pickPersonPhotosLauncher;
+
+    // Person whose extra photos are being picked, set on a long press
+    private Person photosOwner;
+
+    // Everyone loaded so far, the adapter gets a fresh copy each time this changes
+    private final List<Person> loadedPeople = new ArrayList<>();
+
+    // Paging state, the generation makes results of an earlier load be ignored after a reload
+    private boolean pageLoading;
+    private boolean lastPageLoaded;
+    private int loadGeneration;
+
+    // Search state, an empty query shows the paged list of everyone
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    private CancellationSignal searchSignal;
+    private String searchQuery = "";
+
+    // Refresh the list when people are added, edited or deleted anywhere in the app
+    private final PeopleRepository.Observer peopleObserver = new PeopleRepository.Observer() {
+        @Override
+        public void onPeopleChanged() {
+            loadPeopleList();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_whos_who_photo_select);
 
-        // Initialize database helper
-        dbHelper = WhosWhoDbHelper.getInstance(this);
+        // Initialize people repository
+        peopleRepository = PeopleRepository.getInstance(this);
+        imageLoader = ImageLoader.getInstance(this);
+        photoImporter = PhotoImporter.getInstance(this);
+
+        // Import every photo picked in the system photo picker
+        pickPhotosLauncher = registerForActivityResult(
+                new ActivityResultContracts.PickMultipleVisualMedia(MAX_IMPORT_PHOTOS),
+                new ActivityResultCallback<List<Uri>>() {
+                    @Override
+                    public void onActivityResult(List<Uri> uris) {
+                        if (!uris.isEmpty()) {
+                            importPhotos(uris, null);
+                        }
+                    }
+                });
+
+        // Import photos picked as extra photos of one person
+        pickPersonPhotosLauncher = registerForActivityResult(
+                new ActivityResultContracts.PickMultipleVisualMedia(MAX_IMPORT_PHOTOS),
+                new ActivityResultCallback<List<Uri>>() {
+                    @Override
+                    public void onActivityResult(List<Uri> uris) {
+                        if (!uris.isEmpty() && photosOwner != null) {
+                            importPhotos(uris, photosOwner);
+                        }
+                        photosOwner = null;
+                    }
+                });
 
         // Initialize views
         peopleRecyclerView = findViewById(R.id.peopleRecyclerView);
         Button addButton = findViewById(R.id.addButton);
         Button doneButton = findViewById(R.id.doneButton);
+        EditText searchEditText = findViewById(R.id.searchEditText);
+        importButton = findViewById(R.id.importButton);
+        importProgressBar = findViewById(R.id.importProgressBar);
 
         // Setup recycler view
         peopleRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new PersonAdapter();
+        peopleRecyclerView.setAdapter(adapter);
+
+        // Load once, after that only changes to people trigger a reload
+        peopleRepository.registerObserver(peopleObserver);
         loadPeopleList();
 
+        // Search as the user types, once typing pauses
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                scheduleSearch(s.toString().trim());
+            }
+        });
+
         // Set button click listeners
         addButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -52,6 +179,13 @@ public class WhosWhoPhotoSelectActivity extends AppCompatActivity {
             }
         });
 
+        importButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                pickPhotosLauncher.launch(imagePickRequest());
+            }
+        });
+
         doneButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -61,38 +195,293 @@ public class WhosWhoPhotoSelectActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Reload people list when returning to this screen
-        loadPeopleList();
+    protected void onDestroy() {
+        super.onDestroy();
+        // Recycles every row still on screen, so onViewRecycled releases their photos
+        peopleRecyclerView.setAdapter(null);
+        peopleRepository.unregisterObserver(peopleObserver);
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+        }
+        if (searchSignal != null) {
+            searchSignal.cancel();
+        }
     }
 
     /**
-     * Load the list of people from the database
+     * Load the list of people from the database, starting again from the first page
+     * As many rows as are already loaded are fetched again, so the adapter can diff
+     * the new list against the old one and keep the scroll position
+     * Shows search results instead while there is a search query
      */
     private void loadPeopleList() {
-        List<Person> people = dbHelper.getAllPeople();
-        adapter = new PersonAdapter(people);
-        peopleRecyclerView.setAdapter(adapter);
+        loadGeneration++;
+        pageLoading = false;
+        lastPageLoaded = false;
+        if (searchSignal != null) {
+            // A newer load replaces any search still running
+            searchSignal.cancel();
+            searchSignal = null;
+        }
+        if (searchQuery.isEmpty()) {
+            loadPage(null, Math.max(loadedPeople.size(), PAGE_SIZE), true);
+        } else {
+            runSearch();
+        }
+    }
+
+    /**
+     * Search after the debounce delay, dropping any search not yet started
+     */
+    private void scheduleSearch(final String query) {
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+        }
+        pendingSearch = new Runnable() {
+            @Override
+            public void run() {
+                pendingSearch = null;
+                if (!query.equals(searchQuery)) {
+                    searchQuery = query;
+                    loadPeopleList();
+                }
+            }
+        };
+        searchHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Show the people matching the current search query
+     */
+    private void runSearch() {
+        // Search results come in one go, there are no further pages
+        lastPageLoaded = true;
+        final int generation = loadGeneration;
+        searchSignal = peopleRepository.searchPeople(searchQuery, SEARCH_LIMIT,
+                new PeopleRepository.Callback<List<Person>>() {
+                    @Override
+                    public void onResult(List<Person> people) {
+                        if (isDestroyed() || generation != loadGeneration) {
+                            return;
+                        }
+                        searchSignal = null;
+                        loadedPeople.clear();
+                        loadedPeople.addAll(people);
+                        adapter.submitList(new ArrayList<>(loadedPeople));
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        if (isDestroyed() || generation != loadGeneration) {
+                            return;
+                        }
+                        searchSignal = null;
+                        Toast.makeText(WhosWhoPhotoSelectActivity.this, "Search failed, please try again",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    /**
+     * Fetch the page after the last loaded person and append it to the list
+     */
+    private void loadNextPage() {
+        if (pageLoading || lastPageLoaded || !searchQuery.isEmpty()) {
+            return;
+        }
+        Person lastPerson = loadedPeople.isEmpty() ? null : loadedPeople.get(loadedPeople.size() - 1);
+        loadPage(lastPerson, PAGE_SIZE, false);
+    }
+
+    /**
+     * Fetch up to limit people after the given person
+     * @param replace Replace everything loaded so far instead of appending
+     */
+    private void loadPage(Person after, final int limit, final boolean replace) {
+        pageLoading = true;
+        final int generation = loadGeneration;
+        peopleRepository.getPeoplePage(after, limit,
+                new PeopleRepository.Callback<List<Person>>() {
+                    @Override
+                    public void onResult(List<Person> page) {
+                        if (isDestroyed() || generation != loadGeneration) {
+                            return;
+                        }
+                        pageLoading = false;
+                        lastPageLoaded = page.size() < limit;
+                        if (replace) {
+                            loadedPeople.clear();
+                        }
+                        loadedPeople.addAll(page);
+                        adapter.submitList(new ArrayList<>(loadedPeople));
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        if (!isDestroyed() && generation == loadGeneration) {
+                            // Let the next scroll ask for the page again
+                            pageLoading = false;
+                        }
+                    }
+                });
+    }
+
+    private static PickVisualMediaRequest imagePickRequest() {
+        return new PickVisualMediaRequest.Builder()
+                .setMediaType(ActivityResultContracts.PickVisualMedia.ImageOnly.INSTANCE)
+                .build();
+    }
+
+    /**
+     * Copy the picked photos in the background, then save them in one transaction
+     * once every photo is processed
+     * @param owner Person the photos are extra photos of, or null to add an unnamed
+     *              person for each photo, named later by tapping them in the list
+     */
+    private void importPhotos(final List<Uri> uris, final Person owner) {
+        importButton.setEnabled(false);
+        importProgressBar.setMax(uris.size());
+        importProgressBar.setProgress(0);
+        importProgressBar.setVisibility(View.VISIBLE);
+
+        photoImporter.importPhotos(uris, new PhotoImporter.BatchCallback() {
+            @Override
+            public void onProgress(int done, int total) {
+                if (!isDestroyed()) {
+                    importProgressBar.setProgress(done);
+                }
+            }
+
+            @Override
+            public void onFinished(List<PhotoImporter.ImportedPhoto> photos) {
+                // Save even if the screen was closed, the copies are already made
+                final int failed = uris.size() - photos.size();
+                if (owner != null) {
+                    savePersonPhotos(owner, photos, failed);
+                } else {
+                    saveImportedPeople(photos, failed);
+                }
+            }
+        });
+    }
+
+    /**
+     * Add an unnamed person for each imported photo
+     */
+    private void saveImportedPeople(List<PhotoImporter.ImportedPhoto> photos, final int failed) {
+        if (photos.isEmpty()) {
+            onNothingImported();
+            return;
+        }
+        List<Person> people = new ArrayList<>();
+        for (PhotoImporter.ImportedPhoto photo : photos) {
+            Person person = new Person("", photo.getPhotoUri(), null, "");
+            person.setFaceRegion(photo.getFaceRegion());
+            people.add(person);
+        }
+        peopleRepository.addPeople(people, new PeopleRepository.Callback<long[]>() {
+            @Override
+            public void onResult(long[] ids) {
+                if (isDestroyed()) {
+                    return;
+                }
+                importButton.setEnabled(true);
+                importProgressBar.setVisibility(View.GONE);
+                String message = "Imported " + ids.length + " photos, tap each one to add a name";
+                if (failed > 0) {
+                    message += " (" + failed + " could not be read)";
+                }
+                Toast.makeText(WhosWhoPhotoSelectActivity.this, message, Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                onImportSaveFailed();
+            }
+        });
+    }
+
+    /**
+     * Store the imported photos as extra photos of a person, which quizzes pick from
+     */
+    private void savePersonPhotos(final Person owner, List<PhotoImporter.ImportedPhoto> photos, final int failed) {
+        if (photos.isEmpty()) {
+            onNothingImported();
+            return;
+        }
+        List<PersonPhoto> personPhotos = new ArrayList<>();
+        for (PhotoImporter.ImportedPhoto photo : photos) {
+            personPhotos.add(new PersonPhoto(owner.getId(), photo.getPhotoUri(), photo.getFaceRegion()));
+        }
+        peopleRepository.addPersonPhotos(personPhotos, new PeopleRepository.Callback<Integer>() {
+            @Override
+            public void onResult(Integer added) {
+                if (isDestroyed()) {
+                    return;
+                }
+                importButton.setEnabled(true);
+                importProgressBar.setVisibility(View.GONE);
+                String message = "Added " + added + " photos of " + owner.getName();
+                if (failed > 0) {
+                    message += " (" + failed + " could not be read)";
+                }
+                Toast.makeText(WhosWhoPhotoSelectActivity.this, message, Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                onImportSaveFailed();
+            }
+        });
+    }
+
+    /**
+     * Let the user import again after the imported photos could not be saved
+     */
+    private void onImportSaveFailed() {
+        if (isDestroyed()) {
+            return;
+        }
+        importButton.setEnabled(true);
+        importProgressBar.setVisibility(View.GONE);
+        Toast.makeText(this, "Could not save the imported photos", Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Tell the user that none of the picked photos could be read, without an empty save
+     */
+    private void onNothingImported() {
+        if (isDestroyed()) {
+            return;
+        }
+        importButton.setEnabled(true);
+        importProgressBar.setVisibility(View.GONE);
+        Toast.makeText(this, "None of the photos could be read, nothing was imported", Toast.LENGTH_LONG).show();
     }
 
     /**
      * Start activity to add a new person
      */
     private void startAddPersonActivity() {
-        Intent intent = new Intent(this, AddItemActivity.class);
+        Intent intent = new Intent(this, AddPeople.class);
         startActivity(intent);
     }
 
     /**
      * Adapter for the people recycler view
+     * Diffs each submitted list against the current one on a background thread
+     * and only rebinds the rows that changed
      */
-    private class PersonAdapter extends RecyclerView.Adapter<PersonAdapter.PersonViewHolder> {
+    private class PersonAdapter extends ListAdapter<Person, PersonAdapter.PersonViewHolder> {
 
-        private List<Person> people;
+        PersonAdapter() {
+            super(PERSON_DIFF);
+            setHasStableIds(true);
+        }
 
-        public PersonAdapter(List<Person> people) {
-            this.people = people;
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).getId();
         }
 
         @NonNull
@@ -105,13 +494,20 @@ public class WhosWhoPhotoSelectActivity extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(@NonNull PersonViewHolder holder, int position) {
-            Person person = people.get(position);
+            Person person = getItem(position);
             holder.bind(person);
+
+            // Ask for the next page before the user reaches the end of the list
+            if (position >= getItemCount() - PREFETCH_DISTANCE) {
+                loadNextPage();
+            }
         }
 
         @Override
-        public int getItemCount() {
-            return people.size();
+        public void onViewRecycled(@NonNull PersonViewHolder holder) {
+            super.onViewRecycled(holder);
+            // The row scrolled away, its photo is no longer needed and its bitmap can be reused
+            imageLoader.clear(holder.photoImageView);
         }
 
         class PersonViewHolder extends RecyclerView.ViewHolder {
@@ -131,23 +527,43 @@ public class WhosWhoPhotoSelectActivity extends AppCompatActivity {
                     public void onClick(View v) {
                         int position = getAdapterPosition();
                         if (position != RecyclerView.NO_POSITION) {
-                            Person person = people.get(position);
+                            Person person = getItem(position);
                             // Start edit activity
-                            Intent intent = new Intent(WhosWhoPhotoSelectActivity.this, AddItemActivity.class);
+                            Intent intent = new Intent(WhosWhoPhotoSelectActivity.this, AddPeople.class);
                             intent.putExtra("personId", person.getId());
                             startActivity(intent);
                         }
                     }
                 });
+
+                // Long press to add more photos of someone, quizzes then show any of them
+                itemView.setOnLongClickListener(new View.OnLongClickListener() {
+                    @Override
+                    public boolean onLongClick(View v) {
+                        int position = getAdapterPosition();
+                        if (position == RecyclerView.NO_POSITION || !importButton.isEnabled()) {
+                            return false;
+                        }
+                        Person person = getItem(position);
+                        if (person.getName() == null || person.getName().isEmpty()) {
+                            Toast.makeText(WhosWhoPhotoSelectActivity.this,
+                                    "Add a name before adding more photos", Toast.LENGTH_SHORT).show();
+                            return true;
+                        }
+                        photosOwner = person;
+                        pickPersonPhotosLauncher.launch(imagePickRequest());
+                        return true;
+                    }
+                });
             }
 
             public void bind(Person person) {
-                nameTextView.setText(person.getName());
+                // Imported photos have no name until they are tagged
+                String name = person.getName();
+                nameTextView.setText(name == null || name.isEmpty() ? "Tap to add a name" : name);
                 categoryTextView.setText(person.getCategory());
-                // Load image
-                if (person.getPhotoUri() != null && !person.getPhotoUri().isEmpty()) {
-                    photoImageView.setImageURI(android.net.Uri.parse(person.getPhotoUri()));
-                }
+                // Load image, decoded in the background at thumbnail size and cropped to the face
+                imageLoader.load(person.getPhotoUri(), person.getFaceRegion(), photoImageView);
             }
         }
     }
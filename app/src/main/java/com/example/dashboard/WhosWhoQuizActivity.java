@@ -1,7 +1,6 @@
 package com.example.dashboard;
 
 import android.content.Intent;
-import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -13,6 +12,7 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -27,8 +27,10 @@ public class WhosWhoQuizActivity extends AppCompatActivity {
     private static final int NUM_QUESTIONS = 5;
     private static final int NUM_OPTIONS = 4;
 
-    private WhosWhoDbHelper dbHelper;
-    private List<Person> allPeople;
+    private PeopleRepository peopleRepository;
+    private ImageLoader imageLoader;
+    private PointsLedger pointsLedger;
+    private QuizSample quizSample;
     private List<Person> quizPeople;
     private List<Integer> questionOrder;
 
@@ -42,14 +44,18 @@ public class WhosWhoQuizActivity extends AppCompatActivity {
     private int currentQuestionIndex = 0;
     private int correctAnswers = 0;
     private Person currentPerson;
+    // Answers given so far, written in one batch when the quiz ends
+    private final List<ReviewOutcome> reviewOutcomes = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_whos_who_quiz);
 
-        // Initialize database helper
-        dbHelper = WhosWhoDbHelper.getInstance(this);
+        // Initialize people repository
+        peopleRepository = PeopleRepository.getInstance(this);
+        imageLoader = ImageLoader.getInstance(this);
+        pointsLedger = new PointsLedger(this);
 
         // Initialize views
         photoImageView = findViewById(R.id.photoImageView);
@@ -80,28 +86,69 @@ public class WhosWhoQuizActivity extends AppCompatActivity {
             }
         });
 
-        // Load people from database
-        allPeople = dbHelper.getAllPeople();
+        // Disable answering until the people have loaded
+        nextButton.setEnabled(false);
+
+        // Sample the quiz people and wrong answers in the background
+        peopleRepository.sampleQuiz(NUM_QUESTIONS, NUM_OPTIONS - 1,
+                new PeopleRepository.Callback<QuizSample>() {
+                    @Override
+                    public void onResult(QuizSample sample) {
+                        if (isFinishing() || isDestroyed()) {
+                            return;
+                        }
+                        quizSample = sample;
+
+                        if (sample.getPeople().isEmpty() || !sample.hasDistractors(NUM_OPTIONS - 1)) {
+                            Toast.makeText(WhosWhoQuizActivity.this,
+                                    "Not enough people for a quiz. Please add more people.",
+                                    Toast.LENGTH_LONG).show();
+                            finish();
+                            return;
+                        }
+
+                        // Setup quiz
+                        nextButton.setEnabled(true);
+                        setupQuiz();
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        if (isFinishing() || isDestroyed()) {
+                            return;
+                        }
+                        Toast.makeText(WhosWhoQuizActivity.this,
+                                "Could not load the quiz. Please try again.", Toast.LENGTH_LONG).show();
+                        finish();
+                    }
+                });
+    }
 
-        if (allPeople.size() < NUM_OPTIONS) {
-            Toast.makeText(this, "Not enough people for a quiz. Please add more people.",
-                    Toast.LENGTH_LONG).show();
-            finish();
-            return;
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Save what was earned so far, the quiz may not be resumed
+        pointsLedger.flush();
+        if (isFinishing()) {
+            // Left early, still schedule the people already asked
+            saveReviews();
         }
+    }
 
-        // Setup quiz
-        setupQuiz();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Hand the question photo back to the image cache so its bitmap can be reused
+        imageLoader.clear(photoImageView);
     }
 
     /**
      * Set up the quiz with random questions
      */
     private void setupQuiz() {
-        // Shuffle people and select a subset for the quiz
-        Collections.shuffle(allPeople);
-        int numQuestions = Math.min(NUM_QUESTIONS, allPeople.size());
-        quizPeople = allPeople.subList(0, numQuestions);
+        // The sample already holds the people most due for review, topped up at random
+        quizPeople = quizSample.getPeople();
+        int numQuestions = quizPeople.size();
 
         // Create question order
         questionOrder = new ArrayList<>();
@@ -110,6 +157,13 @@ public class WhosWhoQuizActivity extends AppCompatActivity {
         }
         Collections.shuffle(questionOrder);
 
+        // Decode the later questions' photos while the first one is on screen,
+        // so moving to the next question only swaps in a ready bitmap
+        for (int i = 1; i < questionOrder.size(); i++) {
+            Person person = quizPeople.get(questionOrder.get(i));
+            imageLoader.prefetch(person.getPhotoUri(), person.getFaceRegion(), photoImageView);
+        }
+
         // Start first question
         currentQuestionIndex = 0;
         showQuestion(currentQuestionIndex);
@@ -131,20 +185,17 @@ public class WhosWhoQuizActivity extends AppCompatActivity {
         // Update question number display
         questionNumberTextView.setText(getString(R.string.question_number, index + 1, questionOrder.size()));
 
-        // Set the person's photo
-        photoImageView.setImageURI(Uri.parse(currentPerson.getPhotoUri()));
+        // Set the person's photo, normally already decoded by the prefetch
+        imageLoader.load(currentPerson.getPhotoUri(), currentPerson.getFaceRegion(), photoImageView);
 
         // Create answer options - 1 correct and 3 wrong
         List<String> optionNames = new ArrayList<>();
         optionNames.add(currentPerson.getName());
 
-        // Add wrong options
-        List<Person> wrongOptions = new ArrayList<>(allPeople);
-        wrongOptions.remove(currentPerson);
-        Collections.shuffle(wrongOptions);
-
+        // Add wrong options picked for this person when the quiz was sampled
+        List<String> wrongOptions = quizSample.getDistractors(personIndex);
         for (int i = 0; i < NUM_OPTIONS - 1 && i < wrongOptions.size(); i++) {
-            optionNames.add(wrongOptions.get(i).getName());
+            optionNames.add(wrongOptions.get(i));
         }
 
         // Shuffle options so correct answer isn't always first
@@ -182,10 +233,12 @@ public class WhosWhoQuizActivity extends AppCompatActivity {
 
         // Check if correct
         boolean isCorrect = selectedName.equals(currentPerson.getName());
+        reviewOutcomes.add(new ReviewOutcome(currentPerson.getId(), isCorrect));
 
         if (isCorrect) {
             correctAnswers++;
-            PointsManager.addPoints(this);
+            // Saved in one write when the quiz ends or is paused
+            pointsLedger.addCorrectAnswer();
             Toast.makeText(this, "Correct!", Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(this, "Incorrect. The correct answer is " + currentPerson.getName(),
@@ -201,10 +254,27 @@ public class WhosWhoQuizActivity extends AppCompatActivity {
      * Finish the quiz and show results
      */
     private void finishQuiz() {
+        pointsLedger.flush();
+        saveReviews();
+        // Queued before the results screen asks for progress, so it is included there
+        peopleRepository.recordQuizResult(new QuizResult(System.currentTimeMillis(),
+                LocalDate.now().toEpochDay(), correctAnswers, questionOrder.size(),
+                correctAnswers * PointsManager.POINTS_PER_CORRECT_ANSWER), null);
         Intent intent = new Intent(this, WhosWhoResultActivity.class);
         intent.putExtra("correctAnswers", correctAnswers);
         intent.putExtra("totalQuestions", questionOrder.size());
         startActivity(intent);
         finish();
     }
+
+    /**
+     * Schedule the next review of everyone answered so far, in one write
+     */
+    private void saveReviews() {
+        if (reviewOutcomes.isEmpty()) {
+            return;
+        }
+        peopleRepository.recordReviews(new ArrayList<>(reviewOutcomes), System.currentTimeMillis(), null);
+        reviewOutcomes.clear();
+    }
 }
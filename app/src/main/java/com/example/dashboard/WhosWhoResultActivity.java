@@ -7,6 +7,8 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.time.LocalDate;
+
 /**
  * Activity to display quiz results
  */
@@ -15,6 +17,7 @@ public class WhosWhoResultActivity extends AppCompatActivity {
     private TextView scoreTextView;
     private TextView feedbackTextView;
     private TextView pointsEarnedTextView;
+    private TextView progressTextView;
     private Button playAgainButton;
     private Button returnHomeButton;
 
@@ -27,6 +30,7 @@ public class WhosWhoResultActivity extends AppCompatActivity {
         scoreTextView = findViewById(R.id.scoreTextView);
         feedbackTextView = findViewById(R.id.feedbackTextView);
         pointsEarnedTextView = findViewById(R.id.pointsEarnedTextView);
+        progressTextView = findViewById(R.id.progressTextView);
         playAgainButton = findViewById(R.id.playAgainButton);
         returnHomeButton = findViewById(R.id.returnHomeButton);
 
@@ -60,6 +64,21 @@ public class WhosWhoResultActivity extends AppCompatActivity {
         int pointsEarned = correctAnswers * 10; // 10 points per correct answer
         pointsEarnedTextView.setText(getString(R.string.points_earned, pointsEarned));
 
+        // Display progress over time, including the quiz just finished
+        progressTextView.setText("");
+        PeopleRepository.getInstance(this).getProgressReport(LocalDate.now().toEpochDay(),
+                new PeopleRepository.Callback<ProgressReport>() {
+                    @Override
+                    public void onResult(ProgressReport report) {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        progressTextView.setText(progressLine("Last 7 days", report.getLastWeek())
+                                + "\n" + progressLine("Last 30 days", report.getLastMonth())
+                                + "\n" + progressLine("All time", report.getAllTime()));
+                    }
+                });
+
         // Set button click listeners
         playAgainButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -77,5 +96,10 @@ public class WhosWhoResultActivity extends AppCompatActivity {
             }
         });
     }
+
+    private String progressLine(String label, ProgressSummary summary) {
+        return getString(R.string.progress_line, label, summary.getQuizzes(),
+                summary.getAccuracyPercent(), summary.getPoints());
+    }
 }
 
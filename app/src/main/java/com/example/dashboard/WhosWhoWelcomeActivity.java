@@ -8,6 +8,8 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.time.LocalDate;
+
 /**
  * Welcome screen for the Who's Who game
  * Displays game intro and current points
@@ -22,6 +24,11 @@ public class WhosWhoWelcomeActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_whos_who_welcome);
 
+        // Find faces in photos added before face detection, in the background
+        FaceBackfillJob.getInstance(this).start();
+        // Find photos deleted from the gallery, at most once a day
+        PhotoIntegrityScanner.getInstance(this).startIfDue();
+
         // Initialize views
         pointsTextView = findViewById(R.id.pointsTextView);
         streakTextView = findViewById(R.id.streakTextView);
@@ -33,17 +40,23 @@ public class WhosWhoWelcomeActivity extends AppCompatActivity {
             @Override
             public void onClick(View v) {
                 // Check if we have enough people in the database
-                WhosWhoDbHelper dbHelper = WhosWhoDbHelper.getInstance(WhosWhoWelcomeActivity.this);
-                int peopleCount = dbHelper.getPeopleCount();
-
-                if (peopleCount >= 4) {
-                    // We have enough people to start a quiz
-                    startQuiz();
-                } else {
-                    // Not enough people, go to photo selection
-                    Intent intent = new Intent(WhosWhoWelcomeActivity.this, WhosWhoPhotoSelectActivity.class);
-                    startActivity(intent);
-                }
+                PeopleRepository.getInstance(WhosWhoWelcomeActivity.this).getPeopleCount(
+                        new PeopleRepository.Callback<Integer>() {
+                            @Override
+                            public void onResult(Integer peopleCount) {
+                                if (isFinishing() || isDestroyed()) {
+                                    return;
+                                }
+                                if (peopleCount >= 4) {
+                                    // We have enough people to start a quiz
+                                    startQuiz();
+                                } else {
+                                    // Not enough people, go to photo selection
+                                    Intent intent = new Intent(WhosWhoWelcomeActivity.this, WhosWhoPhotoSelectActivity.class);
+                                    startActivity(intent);
+                                }
+                            }
+                        });
             }
         });
 
@@ -70,9 +83,10 @@ public class WhosWhoWelcomeActivity extends AppCompatActivity {
      * Updates the points and streak text views
      */
     private void updatePointsDisplay() {
+        long today = LocalDate.now().toEpochDay();
         int totalPoints = PointsManager.getTotalPoints(this);
-        int dailyPoints = PointsManager.getDailyPoints(this);
-        int streak = PointsManager.getCurrentStreak(this);
+        int dailyPoints = PointsManager.getDailyPoints(this, today);
+        int streak = PointsManager.getCurrentStreak(this, today);
 
         pointsTextView.setText(getString(R.string.points_display, totalPoints, dailyPoints));
 
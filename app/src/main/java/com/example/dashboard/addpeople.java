@@ -30,9 +30,14 @@ public class AddPeople extends AppCompatActivity {
     private static final int PICK_IMAGE_REQUEST = 1;
     private static final int PERMISSION_REQUEST_CODE = 2;
 
-    private WhosWhoDbHelper dbHelper;
+    private PeopleRepository peopleRepository;
+    private ImageLoader imageLoader;
+    private PhotoImporter photoImporter;
     private Person existingPerson;
     private String photoUri;
+    private FaceRegion photoFace;
+    // Copy imported in this session and not saved yet, deleted if it is never saved
+    private String unsavedPhotoUri;
 
     private ImageView photoImageView;
     private EditText nameEditText;
@@ -51,8 +56,10 @@ public class AddPeople extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_people);
 
-        // Initialize database helper
-        dbHelper = WhosWhoDbHelper.getInstance(this);
+        // Initialize people repository
+        peopleRepository = PeopleRepository.getInstance(this);
+        imageLoader = ImageLoader.getInstance(this);
+        photoImporter = PhotoImporter.getInstance(this);
 
         // Initialize views
         photoImageView = findViewById(R.id.photoImageView);
@@ -75,10 +82,31 @@ public class AddPeople extends AppCompatActivity {
         // Check if we're editing an existing person
         long personId = getIntent().getLongExtra("personId", -1);
         if (personId != -1) {
-            existingPerson = dbHelper.getPerson(personId);
-            if (existingPerson != null) {
-                loadPersonData();
-            }
+            // Block saving until the person has loaded so an edit is not saved as a new person
+            saveButton.setEnabled(false);
+            peopleRepository.getPerson(personId, new PeopleRepository.Callback<Person>() {
+                @Override
+                public void onResult(Person person) {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    existingPerson = person;
+                    if (existingPerson != null) {
+                        loadPersonData();
+                    }
+                    saveButton.setEnabled(true);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    // Saving now would add a duplicate instead of editing
+                    Toast.makeText(AddPeople.this, "Could not load this person", Toast.LENGTH_SHORT).show();
+                    finish();
+                }
+            });
         }
 
         // Set click listeners
@@ -135,11 +163,10 @@ public class AddPeople extends AppCompatActivity {
         nameEditText.setText(existingPerson.getName());
         relationEditText.setText(existingPerson.getRelation());
         photoUri = existingPerson.getPhotoUri();
+        photoFace = existingPerson.getFaceRegion();
 
         // Set photo if available
-        if (photoUri != null && !photoUri.isEmpty()) {
-            photoImageView.setImageURI(Uri.parse(photoUri));
-        }
+        imageLoader.load(photoUri, photoImageView);
 
         // Set category radio button
         String category = existingPerson.getCategory();
@@ -171,8 +198,50 @@ public class AddPeople extends AppCompatActivity {
 
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null && data.getData() != null) {
             Uri imageUri = data.getData();
-            photoUri = imageUri.toString();
-            photoImageView.setImageURI(imageUri);
+
+            // Save a normalized copy of the photo, the person will point at the copy
+            saveButton.setEnabled(false);
+            photoImporter.importPhoto(imageUri, new PhotoImporter.Callback() {
+                @Override
+                public void onImported(PhotoImporter.ImportedPhoto photo) {
+                    if (isDestroyed()) {
+                        if (photo != null) {
+                            photoImporter.deleteImportedPhoto(photo.getPhotoUri());
+                        }
+                        return;
+                    }
+                    saveButton.setEnabled(true);
+                    if (photo == null) {
+                        Toast.makeText(AddPeople.this, "Could not import photo", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    discardUnsavedPhoto();
+                    unsavedPhotoUri = photo.getPhotoUri();
+                    photoUri = photo.getPhotoUri();
+                    photoFace = photo.getFaceRegion();
+                    imageLoader.load(photoUri, photoImageView);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Hand the preview back to the image cache so its bitmap can be reused
+        imageLoader.clear(photoImageView);
+        if (isFinishing()) {
+            discardUnsavedPhoto();
+        }
+    }
+
+    /**
+     * Delete the photo copy imported in this session, if it was not saved
+     */
+    private void discardUnsavedPhoto() {
+        if (unsavedPhotoUri != null) {
+            photoImporter.deleteImportedPhoto(unsavedPhotoUri);
+            unsavedPhotoUri = null;
         }
     }
 
@@ -204,24 +273,67 @@ public class AddPeople extends AppCompatActivity {
         String category = categorySpinner.getSelectedItem().toString();
 
         // Update or create person
+        // The new copy now belongs to the person, keep it when the activity finishes
+        final String savingPhotoUri = unsavedPhotoUri;
+        unsavedPhotoUri = null;
         if (existingPerson != null) {
+            // Drop the copy the person had before, once the new one is saved
+            final String replacedPhotoUri = photoUri.equals(existingPerson.getPhotoUri())
+                    ? null : existingPerson.getPhotoUri();
             existingPerson.setName(name);
             existingPerson.setPhotoUri(photoUri);
+            existingPerson.setFaceRegion(photoFace);
             existingPerson.setCategory(category);
             existingPerson.setRelation(relation);
 
-            dbHelper.updatePerson(existingPerson);
-            Toast.makeText(this, "Person updated", Toast.LENGTH_SHORT).show();
+            saveButton.setEnabled(false);
+            peopleRepository.updatePerson(existingPerson, new PeopleRepository.Callback<Integer>() {
+                @Override
+                public void onResult(Integer rowsUpdated) {
+                    photoImporter.deleteImportedPhoto(replacedPhotoUri);
+                    Toast.makeText(AddPeople.this, "Person updated", Toast.LENGTH_SHORT).show();
+                    finish();
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    onSaveFailed(savingPhotoUri);
+                }
+            });
         } else {
             Person newPerson = new Person(name, photoUri, category, relation);
-            long id = dbHelper.addPerson(newPerson);
-            if (id != -1) {
-                Toast.makeText(this, "Person added", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "Error adding person", Toast.LENGTH_SHORT).show();
-            }
+            newPerson.setFaceRegion(photoFace);
+            saveButton.setEnabled(false);
+            peopleRepository.addPerson(newPerson, new PeopleRepository.Callback<Long>() {
+                @Override
+                public void onResult(Long id) {
+                    if (id != -1) {
+                        Toast.makeText(AddPeople.this, "Person added", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(AddPeople.this, "Error adding person", Toast.LENGTH_SHORT).show();
+                    }
+                    finish();
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    onSaveFailed(savingPhotoUri);
+                }
+            });
         }
+    }
 
-        finish();
+    /**
+     * Let the user try again after a failed save
+     * @param unsavedCopy Photo copy the save would have handed to the person, still ours to clean up
+     */
+    private void onSaveFailed(String unsavedCopy) {
+        unsavedPhotoUri = unsavedCopy;
+        if (isDestroyed()) {
+            photoImporter.deleteImportedPhoto(unsavedCopy);
+            return;
+        }
+        saveButton.setEnabled(true);
+        Toast.makeText(this, "Could not save, please try again", Toast.LENGTH_SHORT).show();
     }
 }
@@ -0,0 +1,163 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Epoch day points file, its rollups and the move from the old date_ preferences
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DailyPointsStoreTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private File file;
+    private File corruptCopy;
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        file = new File(context.getFilesDir(), "store_points.bin");
+        file.delete();
+        corruptCopy = new File(file.getPath() + ".corrupt");
+        corruptCopy.delete();
+        prefs = context.getSharedPreferences("store_prefs", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        corruptCopy.delete();
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void legacyDateKeys_areMovedIntoTheStore() {
+        prefs.edit()
+                .putInt("date_2026-10-16", 30)
+                .putInt("date_2026-10-17", 50)
+                .putInt("date_2024-01-05", 20)
+                .putInt("total_points", 100)
+                .putInt("current_streak", 2)
+                .putBoolean("sound_on", true)
+                .commit();
+
+        DailyPointsStore store = new DailyPointsStore(file, prefs, DIRECT);
+        long lastDay = LocalDate.of(2026, 10, 17).toEpochDay();
+
+        assertEquals(50, store.getPoints(lastDay));
+        assertEquals(30, store.getPoints(lastDay - 1));
+        assertEquals(100, store.getTotalPoints());
+        assertEquals(2, store.getCurrentStreak(lastDay + 1));
+        assertEquals(0, store.getCurrentStreak(lastDay + 2));
+        // Too old for the day and week rings, still counted in its month
+        assertEquals(0, store.getPoints(LocalDate.of(2024, 1, 5).toEpochDay()));
+        assertEquals(20, store.getMonthPoints(LocalDate.of(2024, 1, 31).toEpochDay()));
+
+        assertFalse(prefs.contains("date_2026-10-17"));
+        assertFalse(prefs.contains("total_points"));
+        assertTrue(prefs.contains("sound_on"));
+    }
+
+    @Test
+    public void constructor_leavesTheFileAloneUntilFirstUse() {
+        DailyPointsStore store = new DailyPointsStore(file, prefs, DIRECT);
+        assertFalse(file.exists());
+
+        assertEquals(0, store.getTotalPoints());
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void legacyDateKeys_stayUntilTheNewFileCanBeRead() throws IOException {
+        // A file where the directory should be, so the new file cannot be written
+        File blocker = new File(file.getParentFile(), "store_points_blocker");
+        assertTrue(blocker.createNewFile() || blocker.isFile());
+        prefs.edit().putInt("date_2026-10-17", 50).putInt("total_points", 50).commit();
+
+        try {
+            DailyPointsStore store = new DailyPointsStore(new File(blocker, "points.bin"), prefs, DIRECT);
+
+            assertEquals(50, store.getTotalPoints());
+            assertTrue(prefs.contains("date_2026-10-17"));
+            assertTrue(prefs.contains("total_points"));
+        } finally {
+            blocker.delete();
+        }
+    }
+
+    @Test
+    public void corruptFile_isKeptAsideAndTheOldPreferencesAreUsed() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3});
+        }
+        prefs.edit().putInt("date_2026-10-17", 50).putInt("total_points", 50).commit();
+
+        DailyPointsStore store = new DailyPointsStore(file, prefs, DIRECT);
+
+        assertEquals(50, store.getTotalPoints());
+        assertTrue(corruptCopy.exists());
+        assertEquals(3, corruptCopy.length());
+        // Written again from the preferences and read back, so they can go
+        assertFalse(prefs.contains("total_points"));
+        assertEquals(50, new DailyPointsStore(file, prefs, DIRECT).getTotalPoints());
+    }
+
+    @Test
+    public void oldDays_rollUpIntoWeeksAndMonths() {
+        DailyPointsStore store = new DailyPointsStore(file, prefs, DIRECT);
+        // Monday 2026-01-05 to Sunday 2026-01-11
+        long monday = LocalDate.of(2026, 1, 5).toEpochDay();
+        for (long day = monday; day < monday + 7; day++) {
+            store.addPoints(day, 10);
+        }
+
+        long later = monday + PointsSnapshot.RECENT_DAYS + 30;
+        store.addPoints(later, 40);
+
+        assertEquals(0, store.getPoints(monday + 3));
+        assertEquals(70, store.getWeekPoints(monday + 3));
+        assertEquals(70, store.getMonthPoints(monday));
+        assertEquals(40, store.getPoints(later));
+        assertEquals(110, store.getTotalPoints());
+    }
+
+    @Test
+    public void reopenedStore_readsWhatWasWritten() {
+        DailyPointsStore store = new DailyPointsStore(file, prefs, DIRECT);
+        long today = LocalDate.of(2026, 10, 18).toEpochDay();
+        store.addPoints(today - 1, 20);
+        store.addPoints(today, 30);
+
+        DailyPointsStore reopened = new DailyPointsStore(file, prefs, DIRECT);
+
+        assertEquals(20, reopened.getPoints(today - 1));
+        assertEquals(30, reopened.getPoints(today));
+        assertEquals(50, reopened.getTotalPoints());
+        assertEquals(2, reopened.getCurrentStreak(today));
+        assertEquals(50, reopened.getMonthPoints(today));
+    }
+}
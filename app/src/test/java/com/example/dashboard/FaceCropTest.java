@@ -0,0 +1,113 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.graphics.Rect;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Crop rectangles around faces, and storing face regions with people
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FaceCropTest {
+
+    private static final String DB_NAME = "face_crop";
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void cropAround_keepsFaceAndViewShape() {
+        // A small face near the right edge of a 1280 x 960 group photo
+        FaceRegion face = new FaceRegion(0.8f, 0.2f, 0.9f, 0.4f);
+
+        Rect crop = BitmapDecoder.cropAround(1280, 960, face, 128, 128);
+
+        assertEquals(crop.width(), crop.height());
+        assertTrue(crop.toString(), crop.left <= 1024 && crop.right >= 1152);
+        assertTrue(crop.toString(), crop.top <= 192 && crop.bottom >= 384);
+        assertTrue(crop.toString(), crop.right <= 1280 && crop.bottom <= 960);
+        // Much tighter than the whole photo
+        assertTrue(crop.toString(), crop.width() < 640);
+    }
+
+    @Test
+    public void cropAround_isNeverSmallerThanTheView() {
+        FaceRegion tinyFace = new FaceRegion(0.5f, 0.5f, 0.51f, 0.51f);
+
+        Rect crop = BitmapDecoder.cropAround(1280, 960, tinyFace, 400, 300);
+
+        assertEquals(400, crop.width());
+        assertEquals(300, crop.height());
+    }
+
+    @Test
+    public void cropAround_shrinksToFitSmallPhotos() {
+        FaceRegion face = new FaceRegion(0.1f, 0.1f, 0.9f, 0.9f);
+
+        Rect crop = BitmapDecoder.cropAround(200, 100, face, 400, 400);
+
+        assertEquals(new Rect(50, 0, 150, 100), crop);
+    }
+
+    @Test
+    public void faceRegions_areStoredAndBackfilledOnlyOnce() {
+        Person withFace = new Person("Meera", "file:///photos/a.webp", "Family", "Aunt");
+        withFace.setFaceRegion(new FaceRegion(0.25f, 0.125f, 0.75f, 0.5f));
+        Person withoutFace = new Person("Ravi", "file:///photos/b.webp", "Friends", "");
+        withoutFace.setFaceRegion(FaceRegion.NONE);
+        Person unchecked = new Person("Asha", "content://media/external/images/media/7", "Family", "");
+        dbHelper.addPeople(Arrays.asList(withFace, withoutFace, unchecked));
+
+        assertEquals(withFace.getFaceRegion(), dbHelper.getPerson(withFace.getId()).getFaceRegion());
+        assertEquals(FaceRegion.NONE, dbHelper.getPerson(withoutFace.getId()).getFaceRegion());
+        assertNull(dbHelper.getPerson(unchecked.getId()).getFaceRegion());
+
+        List<Person> toSearch = dbHelper.getPeopleWithoutFaceCheck(10);
+        assertEquals(1, toSearch.size());
+        assertEquals(unchecked.getId(), toSearch.get(0).getId());
+
+        toSearch.get(0).setFaceRegion(new FaceRegion(0.5f, 0.5f, 0.75f, 0.75f));
+        assertEquals(1, dbHelper.updateFaceRegions(toSearch));
+        assertTrue(dbHelper.getPeopleWithoutFaceCheck(10).isEmpty());
+        assertEquals("Asha", dbHelper.getPerson(unchecked.getId()).getName());
+    }
+
+    @Test
+    public void updateFaceRegions_skipsPeopleWhosePhotoChanged() {
+        Person person = new Person("Meera", "file:///photos/old.webp", "Family", "Aunt");
+        dbHelper.addPeople(Arrays.asList(person));
+        Person searched = dbHelper.getPeopleWithoutFaceCheck(10).get(0);
+
+        person.setPhotoUri("file:///photos/new.webp");
+        dbHelper.updatePerson(person);
+        searched.setFaceRegion(new FaceRegion(0.1f, 0.1f, 0.2f, 0.2f));
+
+        assertEquals(0, dbHelper.updateFaceRegions(Arrays.asList(searched)));
+        assertNull(dbHelper.getPerson(person.getId()).getFaceRegion());
+    }
+}
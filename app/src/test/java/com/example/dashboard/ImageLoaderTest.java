@@ -0,0 +1,221 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.net.Uri;
+import android.os.Looper;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Loading photos into image views through ImageLoader
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ImageLoaderTest {
+
+    private static final int VIEW_SIZE = 64;
+    private static final long WAIT_MILLIS = 10_000;
+
+    private Context context;
+    private ShadowContentResolver shadowResolver;
+    private ImageLoader imageLoader;
+    // Lets a blocked decode finish even when the test fails part way
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shadowResolver = shadowOf(context.getContentResolver());
+        imageLoader = new ImageLoader(context);
+    }
+
+    @After
+    public void tearDown() {
+        unblock.countDown();
+    }
+
+    @Test
+    public void load_showsThePhotoAndForgetsTheRequest() {
+        registerPhoto("content://com.example.dashboard.test/photos/shown");
+        final ImageView view = newImageView();
+
+        assertFalse(imageLoader.load("content://com.example.dashboard.test/photos/shown", view));
+        assertEquals(1, imageLoader.getPendingLoadCount());
+
+        idleUntil(new Condition() {
+            @Override
+            public boolean holds() {
+                return view.getDrawable() != null;
+            }
+        });
+        assertEquals(0, imageLoader.getPendingLoadCount());
+    }
+
+    @Test
+    public void load_photoThatIsNotAnImage_forgetsTheRequest() {
+        final byte[] notAnImage = {1, 2, 3, 4};
+        shadowResolver.registerInputStreamSupplier(Uri.parse("content://com.example.dashboard.test/photos/broken"),
+                new Supplier<InputStream>() {
+                    @Override
+                    public InputStream get() {
+                        return new ByteArrayInputStream(notAnImage);
+                    }
+                });
+        ImageView view = newImageView();
+
+        imageLoader.load("content://com.example.dashboard.test/photos/broken", view);
+
+        idleUntil(new Condition() {
+            @Override
+            public boolean holds() {
+                return imageLoader.getPendingLoadCount() == 0;
+            }
+        });
+        assertNull(view.getDrawable());
+    }
+
+    @Test
+    public void prefetchedPhoto_isShownWithoutAnotherDecode() {
+        final AtomicInteger opens = new AtomicInteger();
+        final byte[] photo = syntheticJpeg(VIEW_SIZE * 4, VIEW_SIZE * 3);
+        shadowResolver.registerInputStreamSupplier(Uri.parse("content://com.example.dashboard.test/photos/next"),
+                new Supplier<InputStream>() {
+                    @Override
+                    public InputStream get() {
+                        opens.incrementAndGet();
+                        return new ByteArrayInputStream(photo);
+                    }
+                });
+        final ImageView nextQuestion = newImageView();
+
+        imageLoader.prefetch("content://com.example.dashboard.test/photos/next", null, nextQuestion);
+        idleUntil(new Condition() {
+            @Override
+            public boolean holds() {
+                return imageLoader.isInMemoryCache("content://com.example.dashboard.test/photos/next", null,
+                        nextQuestion);
+            }
+        });
+        int opensAfterPrefetch = opens.get();
+
+        // The next question swaps straight to the decoded bitmap
+        assertTrue(imageLoader.load("content://com.example.dashboard.test/photos/next", nextQuestion));
+        assertNotNull(nextQuestion.getDrawable());
+        assertEquals(0, imageLoader.getPendingLoadCount());
+        assertEquals(opensAfterPrefetch, opens.get());
+    }
+
+    @Test
+    public void pendingLoad_doesNotKeepItsViewAlive() {
+        final byte[] photo = syntheticJpeg(VIEW_SIZE * 4, VIEW_SIZE * 3);
+        shadowResolver.registerInputStreamSupplier(Uri.parse("content://com.example.dashboard.test/photos/slow"),
+                new Supplier<InputStream>() {
+                    @Override
+                    public InputStream get() {
+                        try {
+                            unblock.await(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return new ByteArrayInputStream(photo);
+                    }
+                });
+        WeakReference<ImageView> closedScreen = loadIntoDroppedView("content://com.example.dashboard.test/photos/slow");
+
+        // The decode is still blocked, only the request's weak reference points at the view
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (closedScreen.get() != null && System.currentTimeMillis() < deadline) {
+            System.gc();
+        }
+        assertNull("A pending decode kept its image view alive", closedScreen.get());
+
+        unblock.countDown();
+        idleUntil(new Condition() {
+            @Override
+            public boolean holds() {
+                return imageLoader.getPendingLoadCount() == 0;
+            }
+        });
+    }
+
+    /**
+     * Start a load into a view that nothing else references once this returns
+     */
+    private WeakReference<ImageView> loadIntoDroppedView(String photoUri) {
+        ImageView view = newImageView();
+        imageLoader.load(photoUri, view);
+        return new WeakReference<>(view);
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    /**
+     * Run main thread work posted by the decode threads until the condition holds
+     */
+    private static void idleUntil(Condition condition) {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (condition.holds()) {
+                return;
+            }
+            assertTrue("Timed out waiting for the image loader", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private ImageView newImageView() {
+        ImageView view = new ImageView(context);
+        view.setLayoutParams(new ViewGroup.LayoutParams(VIEW_SIZE, VIEW_SIZE));
+        return view;
+    }
+
+    private void registerPhoto(String photoUri) {
+        final byte[] photo = syntheticJpeg(VIEW_SIZE * 4, VIEW_SIZE * 3);
+        shadowResolver.registerInputStreamSupplier(Uri.parse(photoUri), new Supplier<InputStream>() {
+            @Override
+            public InputStream get() {
+                return new ByteArrayInputStream(photo);
+            }
+        });
+    }
+
+    private static byte[] syntheticJpeg(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        new Canvas(bitmap).drawColor(Color.rgb(200, 120, 40));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        return out.toByteArray();
+    }
+}
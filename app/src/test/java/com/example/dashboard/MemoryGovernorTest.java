@@ -0,0 +1,125 @@
+package com.example.dashboard;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulates trim levels against caches sized for a small memory class
+ */
+public class MemoryGovernorTest {
+
+    private static final long MB = 1024L * 1024;
+
+    @Test
+    public void register_sizesCacheFromMemoryClass() {
+        MemoryGovernor governor = new MemoryGovernor(64);
+        FakeCache cache = new FakeCache();
+
+        governor.register("bitmaps", cache, 1f / 8);
+
+        assertEquals(8 * MB, cache.getMaxBytes());
+        assertEquals(8 * MB, governor.getBudget("bitmaps"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void trimLevels_cutCachesByPressure() {
+        MemoryGovernor governor = new MemoryGovernor(64);
+        FakeCache cache = new FakeCache();
+        governor.register("bitmaps", cache, 1f / 8);
+
+        cache.fill();
+        governor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(4 * MB, cache.getSizeBytes());
+
+        cache.fill();
+        governor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(4 * MB, cache.getSizeBytes());
+
+        cache.fill();
+        governor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(2 * MB, cache.getSizeBytes());
+
+        cache.fill();
+        governor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertEquals(0, cache.getSizeBytes());
+
+        cache.fill();
+        governor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(0, cache.getSizeBytes());
+
+        // Trimming frees memory now but leaves room to fill up again later
+        assertEquals(8 * MB, cache.getMaxBytes());
+    }
+
+    @Test
+    public void getUsage_reportsEveryCache() {
+        MemoryGovernor governor = new MemoryGovernor(32);
+        FakeCache bitmaps = new FakeCache();
+        PeopleCache people = new PeopleCache();
+        governor.register("bitmaps", bitmaps, 1f / 8);
+        governor.register("people", people, 1f / 32);
+        bitmaps.fill();
+        people.load(Arrays.asList(new Person(1, "Meera", "uri1", "Family", "Aunt")), people.getVersion());
+
+        Map<String, Long> usage = governor.getUsage();
+
+        assertEquals(Arrays.asList("bitmaps", "people"), Arrays.asList(usage.keySet().toArray()));
+        assertEquals(Long.valueOf(4 * MB), usage.get("bitmaps"));
+        assertEquals(Long.valueOf(PeopleCache.ESTIMATED_BYTES_PER_PERSON), usage.get("people"));
+    }
+
+    @Test
+    public void peopleCache_isDroppedRatherThanPartlyKept() {
+        MemoryGovernor governor = new MemoryGovernor(32);
+        PeopleCache people = new PeopleCache();
+        governor.register("people", people, 1f / 32);
+        people.load(Arrays.asList(
+                new Person(1, "Meera", "uri1", "Family", "Aunt"),
+                new Person(2, "Ravi", "uri2", "Friends", "Neighbour")), people.getVersion());
+
+        governor.onLowMemory();
+
+        assertFalse(people.isLoaded());
+        assertEquals(0, people.getSizeBytes());
+    }
+
+    /**
+     * Cache that only tracks a byte count
+     */
+    private static class FakeCache implements TrimmableCache {
+        private long maxBytes;
+        private long sizeBytes;
+
+        void fill() {
+            sizeBytes = maxBytes;
+        }
+
+        @Override
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        @Override
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        @Override
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            trimToSize(maxBytes);
+        }
+
+        @Override
+        public void trimToSize(long targetBytes) {
+            sizeBytes = Math.min(sizeBytes, targetBytes);
+        }
+    }
+}
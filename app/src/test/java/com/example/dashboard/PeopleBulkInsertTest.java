@@ -0,0 +1,105 @@
+package com.example.dashboard;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Inserting, updating and deleting people in batches of up to 10k rows
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PeopleBulkInsertTest {
+
+    private static final int ROWS = 10_000;
+    private static final String BATCH_DB = "bulk_insert";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(BATCH_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(BATCH_DB);
+    }
+
+    @Test
+    public void addPeople_insertsEveryRowInOneTransaction() {
+        WhosWhoDbHelper dbHelper = new WhosWhoDbHelper(context, BATCH_DB);
+        List<Person> people = syntheticPeople(ROWS);
+        final AtomicInteger changes = new AtomicInteger();
+        dbHelper.addChangeListener(new WhosWhoDbHelper.PeopleChangeListener() {
+            @Override
+            public void onPeopleChanged() {
+                changes.incrementAndGet();
+            }
+        });
+
+        long[] ids = dbHelper.addPeople(people);
+
+        assertEquals(ROWS, dbHelper.getPeopleCount());
+        assertEquals(ROWS, ids.length);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue("Ids are not in insertion order at " + i, ids[i] > ids[i - 1]);
+        }
+        // Listeners hear about a transaction once, after it commits
+        assertEquals(1, changes.get());
+        dbHelper.close();
+    }
+
+    @Test
+    public void addPeople_returnsIdsInListOrder() {
+        WhosWhoDbHelper dbHelper = new WhosWhoDbHelper(context, BATCH_DB);
+        List<Person> people = syntheticPeople(3);
+
+        long[] ids = dbHelper.addPeople(people);
+
+        assertEquals(3, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(people.get(i).getName(), dbHelper.getPerson(ids[i]).getName());
+        }
+        dbHelper.close();
+    }
+
+    @Test
+    public void updateAndDeletePeople_affectEveryRow() {
+        WhosWhoDbHelper dbHelper = new WhosWhoDbHelper(context, BATCH_DB);
+        List<Person> people = syntheticPeople(50);
+        long[] ids = dbHelper.addPeople(people);
+        for (int i = 0; i < ids.length; i++) {
+            people.get(i).setId(ids[i]);
+            people.get(i).setRelation(null);
+        }
+
+        assertEquals(50, dbHelper.updatePeople(people));
+        assertNull(dbHelper.getPerson(ids[0]).getRelation());
+
+        assertEquals(50, dbHelper.deletePeople(people));
+        assertEquals(0, dbHelper.getPeopleCount());
+        dbHelper.close();
+    }
+
+    private static List<Person> syntheticPeople(int count) {
+        List<Person> people = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            people.add(new Person("Person " + i, "content://media/external/images/media/" + i,
+                    "Family", "Cousin"));
+        }
+        return people;
+    }
+}
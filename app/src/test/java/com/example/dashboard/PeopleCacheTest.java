@@ -0,0 +1,63 @@
+package com.example.dashboard;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the write-through people cache
+ */
+public class PeopleCacheTest {
+
+    @Test
+    public void writesUpdateLoadedCacheInPlace() {
+        PeopleCache cache = new PeopleCache();
+        cache.load(Arrays.asList(
+                new Person(1, "Meera", "uri1", "Family", "Aunt"),
+                new Person(2, "Ravi", "uri2", "Friends", "Neighbour")), cache.getVersion());
+
+        cache.put(new Person(3, "Asha", "uri3", "Family", "Sister"));
+        cache.put(new Person(2, "Ravi", "uri2", "Family", "Cousin"));
+        cache.remove(1);
+
+        assertEquals(2, cache.size());
+        assertEquals(Arrays.asList(2L, 3L), ids(cache.getByCategory("Family")));
+        assertTrue(cache.getByCategory("Friends").isEmpty());
+        assertEquals("Cousin", cache.get(2).getRelation());
+    }
+
+    @Test
+    public void loadIsDroppedWhenAWriteRacedWithTheQuery() {
+        PeopleCache cache = new PeopleCache();
+        long versionAtQuery = cache.getVersion();
+
+        // A write lands after the query started but before the load
+        cache.put(new Person(5, "New", "uri", "Family", ""));
+        cache.load(new ArrayList<Person>(), versionAtQuery);
+
+        assertFalse(cache.isLoaded());
+    }
+
+    @Test
+    public void returnedPeopleAreCopies() {
+        PeopleCache cache = new PeopleCache();
+        cache.load(Arrays.asList(new Person(1, "Meera", "uri1", "Family", "Aunt")), cache.getVersion());
+
+        cache.get(1).setName("Changed");
+        cache.getAll().get(0).setName("Changed");
+
+        assertEquals("Meera", cache.get(1).getName());
+    }
+
+    private static List<Long> ids(List<Person> people) {
+        List<Long> ids = new ArrayList<>();
+        for (Person person : people) {
+            ids.add(person.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * When WhosWhoDbHelper tells its listeners that people changed
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PeopleChangeListenerTest {
+
+    private static final String DB_NAME = "people_change_listener";
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+    private int changes;
+    private final WhosWhoDbHelper.PeopleChangeListener listener = new WhosWhoDbHelper.PeopleChangeListener() {
+        @Override
+        public void onPeopleChanged() {
+            changes++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+        dbHelper.addChangeListener(listener);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void everySingleWrite_notifiesOnce() {
+        Person person = new Person("Meera", "content://photo/1", "Family", "Aunt");
+
+        dbHelper.addPerson(person);
+        assertEquals(1, changes);
+
+        person.setRelation("Cousin");
+        dbHelper.updatePerson(person);
+        assertEquals(2, changes);
+
+        dbHelper.deletePerson(person);
+        assertEquals(3, changes);
+    }
+
+    @Test
+    public void nestedWrites_notifyOnceAfterTheOutermostCommit() {
+        dbHelper.runInTransaction(new WhosWhoDbHelper.Transaction<Void>() {
+            @Override
+            public Void run(SQLiteDatabase db) {
+                dbHelper.addPerson(new Person("Meera", "content://photo/1", "Family", "Aunt"));
+                dbHelper.addPeople(Arrays.asList(
+                        new Person("Ravi", "content://photo/2", "Friends", "Neighbour"),
+                        new Person("Asha", "content://photo/3", "Family", "Sister")));
+                // Nothing is published while the transaction is still open
+                assertEquals(0, changes);
+                return null;
+            }
+        });
+
+        assertEquals(1, changes);
+    }
+
+    @Test
+    public void rolledBackWrites_doNotNotify() {
+        try {
+            dbHelper.runInTransaction(new WhosWhoDbHelper.Transaction<Void>() {
+                @Override
+                public Void run(SQLiteDatabase db) {
+                    dbHelper.addPerson(new Person("Meera", "content://photo/1", "Family", "Aunt"));
+                    throw new IllegalStateException("abort");
+                }
+            });
+            fail("Expected the transaction to throw");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        assertEquals(0, changes);
+        assertEquals(0, dbHelper.getPeopleCount());
+    }
+
+    @Test
+    public void removedListener_hearsNothing() {
+        dbHelper.removeChangeListener(listener);
+
+        List<Person> people = Arrays.asList(new Person("Meera", "content://photo/1", "Family", "Aunt"));
+        dbHelper.addPeople(people);
+
+        assertEquals(0, changes);
+    }
+}
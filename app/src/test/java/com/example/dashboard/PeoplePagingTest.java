@@ -0,0 +1,128 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for keyset paging through people ordered by name
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PeoplePagingTest {
+
+    private static final String DB_NAME = "people_paging";
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+    private int photoCount;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void paging_returnsEveryPersonOnceInNameOrder() {
+        // Duplicate names tie on the name, the id decides between them
+        String[] names = {"Meera", "Asha", "Ravi", "Asha", "Kiran", "Meera", "Dev"};
+        List<Long> ids = new ArrayList<>();
+        for (String name : names) {
+            ids.add(insert(name));
+        }
+        List<Long> expected = Arrays.asList(ids.get(1), ids.get(3), ids.get(6), ids.get(4),
+                ids.get(0), ids.get(5), ids.get(2));
+
+        // A page size that divides the roster unevenly, so the last page is short
+        assertEquals(expected, visitAll(3));
+        assertEquals(expected, visitAll(1));
+        assertEquals(expected, visitAll(names.length));
+    }
+
+    @Test
+    public void paging_emptyTable_returnsNoPage() {
+        assertTrue(dbHelper.getPeoplePage(null, 10).isEmpty());
+    }
+
+    @Test
+    public void paging_visitsMissingAndEmptyNamesExactlyOnce() {
+        // Missing and empty names interleaved by id, so they tie on the sort name
+        List<Long> expected = new ArrayList<>();
+        expected.add(insert(null));
+        expected.add(insert(""));
+        expected.add(insert(null));
+        expected.add(insert(""));
+        expected.add(insert(null));
+        long ravi = insert("Ravi");
+        long asha = insert("Asha");
+        expected.add(asha);
+        expected.add(ravi);
+
+        // Pages of two put page breaks between tied rows
+        assertEquals(expected, visitAll(2));
+    }
+
+    @Test
+    public void paging_walksTheSortNameIndex() {
+        String plan = queryPlan(dbHelper.getReadableDatabase(),
+                "SELECT id FROM people WHERE COALESCE(name, '') >= '' "
+                        + "AND (COALESCE(name, '') > '' OR id > 3) ORDER BY COALESCE(name, ''), id LIMIT 2");
+
+        assertTrue(plan, plan.contains("idx_people_sort_name"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    /**
+     * Walk every page from the start, collecting the ids in the order they came
+     */
+    private List<Long> visitAll(int pageSize) {
+        List<Long> visited = new ArrayList<>();
+        Person after = null;
+        while (true) {
+            List<Person> page = dbHelper.getPeoplePage(after, pageSize);
+            if (page.isEmpty()) {
+                return visited;
+            }
+            for (Person person : page) {
+                visited.add(person.getId());
+            }
+            after = page.get(page.size() - 1);
+        }
+    }
+
+    private long insert(String name) {
+        return dbHelper.addPerson(new Person(name, "content://photo/" + photoCount++, "Family", "Cousin"));
+    }
+
+    private static String queryPlan(SQLiteDatabase db, String sql) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+        int detail = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(detail)).append('\n');
+        }
+        cursor.close();
+        return plan.toString();
+    }
+}
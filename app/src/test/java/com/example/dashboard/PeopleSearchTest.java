@@ -0,0 +1,78 @@
+package com.example.dashboard;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the full text people search
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PeopleSearchTest {
+
+    private static final String DB_NAME = "people_search";
+    private static final int ROWS = 50_000;
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void prefixSearch_matchesNameAndRelationOnLargeRoster() {
+        List<Person> people = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            people.add(new Person("Person " + i, "content://photo/" + i, "Friends", "Neighbour"));
+        }
+        people.add(new Person("Meera", "content://photo/meera", "Family", "Aunt"));
+        dbHelper.addPeople(people);
+
+        List<Person> results = dbHelper.searchPeople("aunt mee", 10, null);
+
+        assertEquals(1, results.size());
+        assertEquals("Meera", results.get(0).getName());
+    }
+
+    @Test
+    public void triggers_keepIndexInStepWithWrites() {
+        Person person = new Person("Meera", "content://photo/1", "Family", "Aunt");
+        dbHelper.addPerson(person);
+
+        person.setName("Radha");
+        dbHelper.updatePerson(person);
+        assertTrue(dbHelper.searchPeople("meera", 10, null).isEmpty());
+        assertEquals(1, dbHelper.searchPeople("rad", 10, null).size());
+
+        dbHelper.deletePerson(person);
+        assertTrue(dbHelper.searchPeople("rad", 10, null).isEmpty());
+    }
+
+    @Test
+    public void toPrefixMatch_dropsOperatorsAndPunctuation() {
+        assertEquals("aunt* mee*", WhosWhoDbHelper.toPrefixMatch("  aunt \"mee*"));
+        assertEquals("O* Neil*", WhosWhoDbHelper.toPrefixMatch("O'Neil"));
+        assertNull(WhosWhoDbHelper.toPrefixMatch(" - "));
+    }
+}
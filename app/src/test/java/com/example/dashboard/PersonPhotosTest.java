@@ -0,0 +1,101 @@
+package com.example.dashboard;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Extra photos of people, and which photo a quiz shows
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PersonPhotosTest {
+
+    private static final String DB_NAME = "person_photos";
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void mainPhoto_followsThePerson() {
+        Person person = new Person("Meera", "file:///photos/first.webp", "Family", "Aunt");
+        dbHelper.addPeople(Arrays.asList(person));
+        dbHelper.addPersonPhotos(Arrays.asList(
+                new PersonPhoto(person.getId(), "file:///photos/extra.webp", FaceRegion.NONE)));
+
+        person.setPhotoUri("file:///photos/second.webp");
+        person.setFaceRegion(new FaceRegion(0.25f, 0.25f, 0.5f, 0.5f));
+        dbHelper.updatePerson(person);
+
+        List<PersonPhoto> photos = dbHelper.getPersonPhotos(person.getId());
+        assertEquals(2, photos.size());
+        assertEquals("file:///photos/extra.webp", photos.get(0).getPhotoUri());
+        assertEquals("file:///photos/second.webp", photos.get(1).getPhotoUri());
+        assertEquals(person.getFaceRegion(), photos.get(1).getFaceRegion());
+
+        dbHelper.deletePerson(person);
+        assertTrue(dbHelper.getPersonPhotos(person.getId()).isEmpty());
+    }
+
+    @Test
+    public void photosOfDeletedPeople_areNotAdded() {
+        Person person = new Person("Ravi", "file:///photos/ravi.webp", "Friends", "");
+        dbHelper.addPeople(Arrays.asList(person));
+        dbHelper.deletePerson(person);
+
+        int added = dbHelper.addPersonPhotos(Arrays.asList(
+                new PersonPhoto(person.getId(), "file:///photos/late.webp", null)));
+
+        assertEquals(0, added);
+        assertTrue(dbHelper.getPersonPhotos(person.getId()).isEmpty());
+    }
+
+    @Test
+    public void quizzes_showEveryPhotoOfAPersonOverTime() {
+        Person person = new Person("Asha", "file:///photos/0.webp", "Family", "");
+        dbHelper.addPeople(Arrays.asList(person));
+        for (int i = 1; i < 4; i++) {
+            FaceRegion face = new FaceRegion(0.1f * i, 0.1f, 0.1f * i + 0.2f, 0.3f);
+            dbHelper.addPersonPhotos(Arrays.asList(
+                    new PersonPhoto(person.getId(), "file:///photos/" + i + ".webp", face)));
+        }
+
+        Set<String> shown = new HashSet<>();
+        for (int round = 0; round < 100; round++) {
+            Person asked = dbHelper.sampleQuiz(1, 0).getPeople().get(0);
+            shown.add(asked.getPhotoUri());
+            if (!asked.getPhotoUri().equals("file:///photos/0.webp")) {
+                assertNotNull(asked.getFaceRegion());
+            }
+        }
+
+        assertEquals(4, shown.size());
+        // The stored main photo is untouched
+        assertEquals("file:///photos/0.webp", dbHelper.getPerson(person.getId()).getPhotoUri());
+    }
+}
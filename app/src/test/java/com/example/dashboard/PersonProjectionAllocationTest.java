@@ -0,0 +1,109 @@
+package com.example.dashboard;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the bytes allocated reading full Person rows against the PersonName projection
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PersonProjectionAllocationTest {
+
+    private static final String DB_NAME = "projection_allocation";
+    private static final int ROWS = 5_000;
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+
+        List<Person> people = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            people.add(new Person("Person " + i,
+                    "content://media/external/images/media/" + (100_000 + i),
+                    "Relatives", "Second cousin on my mother's side"));
+        }
+        dbHelper.addPeople(people);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void nameProjection_allocatesLessThanFullRows() {
+        // Warm up both queries so class loading and statement caching are not measured
+        dbHelper.getPeoplePage(null, ROWS);
+        dbHelper.getPeopleNames();
+
+        long fullBytes = allocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(ROWS, dbHelper.getPeoplePage(null, ROWS).size());
+            }
+        });
+        long nameBytes = allocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(ROWS, dbHelper.getPeopleNames().size());
+            }
+        });
+
+        assertTrue(String.format(Locale.US,
+                "Expected the name projection to allocate less reading %d rows: Person %d bytes, PersonName %d bytes",
+                ROWS, fullBytes, nameBytes), nameBytes < fullBytes);
+    }
+
+    @Test
+    public void nameProjection_keepsNameOrder() {
+        List<PersonName> names = dbHelper.getPeopleNames();
+
+        assertEquals("Person 0", names.get(0).getName());
+        assertEquals("Person 1", names.get(1).getName());
+        assertEquals("Person 10", names.get(2).getName());
+    }
+
+    @Test
+    public void nameProjection_ordersMissingNamesLikeThePages() {
+        long unnamed = dbHelper.addPerson(new Person(null, "content://photo/unnamed", "Family", ""));
+        long empty = dbHelper.addPerson(new Person("", "content://photo/empty", "Family", ""));
+
+        List<PersonName> names = dbHelper.getPeopleNames();
+        List<Person> page = dbHelper.getPeoplePage(null, 3);
+
+        assertEquals(unnamed, names.get(0).getId());
+        assertEquals(empty, names.get(1).getId());
+        for (int i = 0; i < page.size(); i++) {
+            assertEquals(page.get(i).getId(), names.get(i).getId());
+        }
+    }
+
+    private static long allocatedBytes(Runnable task) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        task.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+}
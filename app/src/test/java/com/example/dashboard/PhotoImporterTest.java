@@ -0,0 +1,123 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.media.ExifInterface;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Copying picked photos into app storage with PhotoImporter
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class PhotoImporterTest {
+
+    private static final Uri SOURCE = Uri.parse("content://com.example.dashboard.test/gallery/1");
+
+    private Context context;
+    private PhotoImporter importer;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        importer = new PhotoImporter(context);
+    }
+
+    @Test
+    public void importPhotoNow_savesAScaledWebpCopyInAppStorage() throws Exception {
+        final byte[] photo = syntheticJpeg(2 * PhotoImporter.MAX_DIMENSION, PhotoImporter.MAX_DIMENSION);
+        shadowOf(context.getContentResolver()).registerInputStreamSupplier(SOURCE, new Supplier<InputStream>() {
+            @Override
+            public InputStream get() {
+                return new ByteArrayInputStream(photo);
+            }
+        });
+
+        PhotoImporter.ImportedPhoto imported = importer.importPhotoNow(SOURCE);
+
+        File copy = new File(Uri.parse(imported.getPhotoUri()).getPath());
+        assertTrue(copy.exists());
+        assertTrue(copy.getName().endsWith(".webp"));
+        assertEquals(new File(context.getFilesDir(), "photos"), copy.getParentFile());
+        assertTrue(importer.isImported(imported.getPhotoUri()));
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(copy.getPath(), bounds);
+        assertEquals("image/webp", bounds.outMimeType);
+        assertEquals(PhotoImporter.MAX_DIMENSION, Math.max(bounds.outWidth, bounds.outHeight));
+
+        importer.deleteImportedPhoto(imported.getPhotoUri());
+        assertFalse(copy.exists());
+    }
+
+    @Test
+    public void importPhotoNow_notAnImage_savesNothing() {
+        shadowOf(context.getContentResolver()).registerInputStreamSupplier(SOURCE, new Supplier<InputStream>() {
+            @Override
+            public InputStream get() {
+                return new ByteArrayInputStream(new byte[]{1, 2, 3, 4});
+            }
+        });
+
+        try {
+            importer.importPhotoNow(SOURCE);
+            fail("Expected the import to fail");
+        } catch (Exception expected) {
+            // Expected
+        }
+        File[] copies = new File(context.getFilesDir(), "photos").listFiles();
+        assertTrue(copies == null || copies.length == 0);
+    }
+
+    @Test
+    public void isImported_onlyForCopiesInAppStorage() {
+        String copy = Uri.fromFile(new File(new File(context.getFilesDir(), "photos"), "a.webp")).toString();
+        String elsewhere = Uri.fromFile(new File(context.getCacheDir(), "a.webp")).toString();
+
+        assertTrue(importer.isImported(copy));
+        assertFalse(importer.isImported(elsewhere));
+        assertFalse(importer.isImported(SOURCE.toString()));
+        assertFalse(importer.isImported(null));
+    }
+
+    @Test
+    public void normalize_turnsRotatedPhotosUpright() {
+        Bitmap landscape = Bitmap.createBitmap(200, 100, Bitmap.Config.ARGB_8888);
+
+        Bitmap rotated = PhotoImporter.normalize(landscape, ExifInterface.ORIENTATION_ROTATE_90);
+        assertEquals(100, rotated.getWidth());
+        assertEquals(200, rotated.getHeight());
+
+        // Already upright and small enough, nothing to do
+        assertSame(landscape, PhotoImporter.normalize(landscape, ExifInterface.ORIENTATION_NORMAL));
+    }
+
+    private static byte[] syntheticJpeg(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        new Canvas(bitmap).drawColor(Color.rgb(90, 160, 210));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stored photo check results, and how they affect quiz sampling
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PhotoIntegrityTest {
+
+    private static final String DB_NAME = "photo_integrity";
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void checkedPhotos_areNotDueAgainUntilTheRecheckTime() {
+        addPeople(30);
+
+        List<Person> due = dbHelper.getPeopleWithPhotoCheckDue(1000, 100);
+        assertEquals(30, due.size());
+
+        assertEquals(30, dbHelper.updatePhotoStatuses(due, Collections.<Long>emptySet(), 2000));
+        assertTrue(dbHelper.getPeopleWithPhotoCheckDue(1000, 100).isEmpty());
+        assertEquals(30, dbHelper.getPeopleWithPhotoCheckDue(3000, 100).size());
+    }
+
+    @Test
+    public void changingAPhoto_makesItDueAgain() {
+        List<Person> people = addPeople(5);
+        dbHelper.updatePhotoStatuses(people, Collections.<Long>emptySet(), 2000);
+
+        Person changed = people.get(2);
+        changed.setPhotoUri("file:///photos/replacement.webp");
+        dbHelper.updatePerson(changed);
+
+        List<Person> due = dbHelper.getPeopleWithPhotoCheckDue(1000, 100);
+        assertEquals(1, due.size());
+        assertEquals(changed.getId(), due.get(0).getId());
+    }
+
+    @Test
+    public void brokenPhotos_areLeftOutOfQuizzes() {
+        List<Person> people = addPeople(12);
+        Set<Long> brokenIds = new HashSet<>();
+        for (int i = 0; i < people.size(); i += 2) {
+            brokenIds.add(people.get(i).getId());
+        }
+        dbHelper.updatePhotoStatuses(people, brokenIds, 2000);
+
+        for (int round = 0; round < 20; round++) {
+            QuizSample sample = dbHelper.sampleQuiz(5, 0);
+            assertEquals(5, sample.getPeople().size());
+            for (Person person : sample.getPeople()) {
+                assertFalse(person.getName(), brokenIds.contains(person.getId()));
+            }
+        }
+    }
+
+    @Test
+    public void brokenExtraPhotos_areNeverPicked() {
+        List<Person> people = addPeople(1);
+        Person person = people.get(0);
+        dbHelper.addPersonPhotos(Arrays.asList(
+                new PersonPhoto(person.getId(), "content://media/external/images/media/extra1", null),
+                new PersonPhoto(person.getId(), "content://media/external/images/media/extra2", null)));
+
+        List<PersonPhoto> due = dbHelper.getPersonPhotosWithCheckDue(1000, 100);
+        assertEquals(3, due.size());
+        Set<Long> brokenIds = new HashSet<>();
+        for (PersonPhoto photo : due) {
+            if (photo.getPhotoUri().contains("extra")) {
+                brokenIds.add(photo.getId());
+            }
+        }
+        assertEquals(3, dbHelper.updatePersonPhotoStatuses(due, brokenIds, 2000));
+        assertTrue(dbHelper.getPersonPhotosWithCheckDue(1000, 100).isEmpty());
+
+        for (int round = 0; round < 20; round++) {
+            assertEquals(person.getPhotoUri(), dbHelper.getRandomPhoto(person.getId()).getPhotoUri());
+        }
+    }
+
+    @Test
+    public void randomPhotoPick_readsOnlyTheUsablePhotoIndex() {
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN "
+                + "SELECT id FROM person_photos WHERE person_id = 1 AND photo_status != 2", null);
+        StringBuilder plan = new StringBuilder();
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(cursor.getColumnIndexOrThrow("detail"))).append('\n');
+        }
+        cursor.close();
+
+        assertTrue(plan.toString(), plan.toString().contains("COVERING INDEX idx_person_photos_usable"));
+    }
+
+    @Test
+    public void badUriCache_forgetsOldestEntriesFirst() {
+        BadUriCache cache = BadUriCache.getInstance();
+        cache.markBad("content://media/external/images/media/first");
+        for (int i = 0; i < 1000; i++) {
+            cache.markBad("content://media/external/images/media/" + i);
+        }
+
+        assertFalse(cache.contains("content://media/external/images/media/first"));
+        assertTrue(cache.contains("content://media/external/images/media/999"));
+        assertTrue(cache.size() < 1000);
+
+        cache.markGood("content://media/external/images/media/999");
+        assertFalse(cache.contains("content://media/external/images/media/999"));
+    }
+
+    private List<Person> addPeople(int count) {
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            people.add(new Person("Person " + i, "content://media/external/images/media/" + i, "Family", ""));
+        }
+        dbHelper.addPeople(people);
+        return people;
+    }
+}
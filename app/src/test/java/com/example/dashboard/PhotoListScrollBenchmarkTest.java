@@ -0,0 +1,165 @@
+package com.example.dashboard;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Scrolls a large synthetic roster through the photo list decode path, with and without the bitmap pool
+ * Rows bind and recycle like the RecyclerView does: each row that scrolls in is decoded
+ * and held, each row that scrolls out is released. New bitmaps, heap bytes allocated
+ * and garbage collections for both runs are given in the failure message.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class PhotoListScrollBenchmarkTest {
+
+    private static final int ROSTER_SIZE = 600;
+    private static final int SOURCE_PHOTOS = 6;
+    private static final int VISIBLE_ROWS = 10;
+    private static final int THUMBNAIL_SIZE = 160;
+    // Room for a screen and a half of thumbnails, so most rows are decoded again on the way down
+    private static final int CACHED_ROWS = 15;
+    // A sixteenth of a 256 MB heap limit, what ImageLoader gives the pool on a typical phone
+    private static final long POOL_BYTES = 16L * 1024 * 1024;
+
+    private ContentResolver resolver;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        resolver = context.getContentResolver();
+        ShadowContentResolver shadowResolver = shadowOf(resolver);
+
+        byte[][] photos = new byte[SOURCE_PHOTOS][];
+        for (int i = 0; i < SOURCE_PHOTOS; i++) {
+            photos[i] = syntheticJpeg(800 + 40 * i, 600, i);
+        }
+        // Every row has its own URI, like a roster of different people
+        for (int row = 0; row < ROSTER_SIZE; row++) {
+            final byte[] photo = photos[row % SOURCE_PHOTOS];
+            shadowResolver.registerInputStreamSupplier(rowUri(row), new Supplier<InputStream>() {
+                @Override
+                public InputStream get() {
+                    return new ByteArrayInputStream(photo);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void scrolling_reusesPooledBitmaps() throws IOException {
+        // Warm up class loading and the decoder so the first run is not penalized
+        scroll(new BitmapPool(POOL_BYTES));
+
+        ScrollResult unpooled = scroll(null);
+        ScrollResult pooled = scroll(new BitmapPool(POOL_BYTES));
+
+        assertEquals(unpooled.decodes, pooled.decodes);
+        assertTrue("Expected the pool to replace most bitmap allocations, without pool: " + unpooled
+                        + ", with pool: " + pooled,
+                pooled.newBitmaps * 4 < unpooled.newBitmaps);
+    }
+
+    /**
+     * Scroll from the top of the roster to the bottom, one row at a time
+     */
+    private ScrollResult scroll(BitmapPool pool) throws IOException {
+        int cacheBytes = CACHED_ROWS * THUMBNAIL_SIZE * THUMBNAIL_SIZE * 4;
+        BitmapMemoryCache memoryCache = new BitmapMemoryCache(cacheBytes, pool);
+        Deque<Bitmap> visible = new ArrayDeque<>();
+        ScrollResult result = new ScrollResult();
+
+        long gcBefore = gcCount();
+        long bytesBefore = allocatedBytes();
+        for (int row = 0; row < ROSTER_SIZE; row++) {
+            // Bind the row scrolling in, the same way ImageLoader loads a thumbnail
+            String key = rowUri(row) + "@" + THUMBNAIL_SIZE + "x" + THUMBNAIL_SIZE;
+            Bitmap thumbnail = memoryCache.acquire(key);
+            if (thumbnail == null) {
+                Bitmap decoded = BitmapDecoder.decodeSampled(resolver, rowUri(row),
+                        THUMBNAIL_SIZE, THUMBNAIL_SIZE, pool);
+                thumbnail = BitmapDecoder.scaleToCover(decoded, THUMBNAIL_SIZE, THUMBNAIL_SIZE, pool);
+                memoryCache.putAndAcquire(key, thumbnail);
+                result.decodes++;
+            }
+            visible.addLast(thumbnail);
+
+            // Recycle the row scrolling out
+            if (visible.size() > VISIBLE_ROWS) {
+                memoryCache.release(visible.removeFirst());
+            }
+        }
+        result.heapBytes = allocatedBytes() - bytesBefore;
+        result.gcEvents = gcCount() - gcBefore;
+        // Without a pool every decode allocates the sampled bitmap and the scaled thumbnail
+        result.newBitmaps = pool != null ? pool.getMissCount() : 2 * result.decodes;
+        return result;
+    }
+
+    private static Uri rowUri(int row) {
+        return Uri.parse("content://com.example.dashboard.test/photos/" + row);
+    }
+
+    private static byte[] syntheticJpeg(int width, int height, int seed) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.rgb(40 * seed, 255 - 30 * seed, 128));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        return out.toByteArray();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static class ScrollResult {
+        int decodes;
+        long newBitmaps;
+        long heapBytes;
+        long gcEvents;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d decodes, %d new bitmaps, %d KB heap allocated, %d GC events",
+                    decodes, newBitmaps, heapBytes / 1024, gcEvents);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Many threads adding points at once, checking nothing is lost or counted twice
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PointsConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ADDS_PER_THREAD = 2_000;
+    private static final int POINTS = PointsManager.POINTS_PER_CORRECT_ANSWER;
+    private static final long TODAY = 20_000;
+
+    private File file;
+    private SharedPreferences prefs;
+    private ExecutorService writeExecutor;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        file = new File(context.getFilesDir(), "concurrent_points.bin");
+        file.delete();
+        prefs = context.getSharedPreferences("concurrent_prefs", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        writeExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        writeExecutor.shutdownNow();
+        file.delete();
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void concurrentAdds_loseNoPoints() throws Exception {
+        final DailyPointsStore store = new DailyPointsStore(file, prefs, writeExecutor);
+        // Yesterday had points, so today's first addition extends the streak to 2, once
+        store.addPoints(TODAY - 1, POINTS);
+        final AtomicInteger failures = new AtomicInteger();
+
+        runConcurrently(new Runnable() {
+            @Override
+            public void run() {
+                int lastSeen = 0;
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    int daily = store.addPoints(TODAY, POINTS);
+                    // Each thread sees its own additions land on top of everyone else's
+                    if (daily <= lastSeen) {
+                        failures.incrementAndGet();
+                    }
+                    lastSeen = daily;
+                }
+            }
+        });
+
+        int expectedToday = THREADS * ADDS_PER_THREAD * POINTS;
+        assertEquals(0, failures.get());
+        assertEquals(expectedToday, store.getPoints(TODAY));
+        assertEquals(expectedToday + POINTS, store.getTotalPoints());
+        // Both days are in October 2024
+        assertEquals(expectedToday + POINTS, store.getMonthPoints(TODAY));
+        assertEquals(2, store.getCurrentStreak(TODAY));
+
+        // The last write holds the final state
+        writeExecutor.shutdown();
+        assertTrue(writeExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        DailyPointsStore reopened = new DailyPointsStore(file, prefs, writeExecutor);
+        assertEquals(expectedToday + POINTS, reopened.getTotalPoints());
+    }
+
+    @Test
+    public void compareAndAdd_failsOnAStaleSnapshot() {
+        DailyPointsStore store = new DailyPointsStore(file, prefs, writeExecutor);
+        PointsSnapshot before = store.snapshot();
+
+        assertTrue(store.compareAndAddPoints(before, TODAY, POINTS));
+        assertFalse(store.compareAndAddPoints(before, TODAY, POINTS));
+        assertEquals(POINTS, store.getTotalPoints());
+        // The snapshot read earlier is unchanged
+        assertEquals(0, before.getTotalPoints());
+    }
+
+    @Test
+    public void concurrentCompareAndAdd_retriesUntilEveryAdditionLands() throws Exception {
+        final DailyPointsStore store = new DailyPointsStore(file, prefs, writeExecutor);
+        final AtomicInteger retries = new AtomicInteger();
+
+        runConcurrently(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    while (!store.compareAndAddPoints(store.snapshot(), TODAY, 1)) {
+                        retries.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        assertEquals("Lost additions after " + retries.get() + " compare-and-add retries",
+                THREADS * ADDS_PER_THREAD, store.getTotalPoints());
+        assertEquals(1, store.getCurrentStreak(TODAY));
+    }
+
+    /**
+     * Start every thread at once and wait for all of them
+     */
+    private static void runConcurrently(final Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        task.run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+    }
+}
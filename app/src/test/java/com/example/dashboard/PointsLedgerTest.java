@@ -0,0 +1,103 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Points are kept in memory during a quiz and saved together on flush
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PointsLedgerTest {
+
+    // Runs writes on the calling thread, so tests see them right away
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private File file;
+    private SharedPreferences prefs;
+    private DailyPointsStore store;
+    private long today;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        file = new File(context.getFilesDir(), "ledger_points.bin");
+        file.delete();
+        prefs = context.getSharedPreferences("ledger_prefs", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        store = new DailyPointsStore(file, prefs, DIRECT);
+        today = LocalDate.now().toEpochDay();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void answers_areOnlySavedOnFlush() {
+        PointsLedger ledger = new PointsLedger(store);
+        for (int i = 0; i < 4; i++) {
+            ledger.addCorrectAnswer();
+        }
+
+        assertEquals(40, ledger.getPendingPoints());
+        assertEquals(0, store.getTotalPoints());
+
+        ledger.flush();
+        ledger.flush();
+
+        assertEquals(0, ledger.getPendingPoints());
+        assertEquals(40, store.getTotalPoints());
+        assertEquals(40, store.getPoints(today));
+        assertEquals(1, store.getCurrentStreak(today));
+    }
+
+    @Test
+    public void flushes_onTheSameDay_countTheStreakOnce() {
+        store.addPoints(today - 2, 20);
+        store.addPoints(today - 1, 30);
+
+        PointsLedger ledger = new PointsLedger(store);
+        ledger.addCorrectAnswer();
+        ledger.flush();
+        ledger.addCorrectAnswer();
+        ledger.addCorrectAnswer();
+        ledger.flush();
+
+        assertEquals(3, store.getCurrentStreak(today));
+        assertEquals(30, store.getPoints(today));
+        assertEquals(80, store.getTotalPoints());
+    }
+
+    @Test
+    public void missedDay_restartsTheStreak() {
+        store.addPoints(today - 3, 30);
+        store.addPoints(today - 2, 30);
+
+        PointsLedger ledger = new PointsLedger(store);
+        ledger.addCorrectAnswer();
+        ledger.flush();
+
+        assertEquals(1, store.getCurrentStreak(today));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Quiz results and the running totals progress ranges are read from
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProgressAnalyticsTest {
+
+    private static final String DB_NAME = "progress_analytics";
+    private static final long TODAY = 20_000;
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void report_sumsEachWindow() {
+        // One quiz a day for 60 days, 3 of 5 correct, and a perfect quiz today
+        for (long day = TODAY - 59; day <= TODAY; day++) {
+            record(day, 3, 5);
+        }
+        record(TODAY, 5, 5);
+
+        ProgressReport report = dbHelper.getProgressReport(TODAY);
+
+        assertEquals(8, report.getLastWeek().getQuizzes());
+        assertEquals(40, report.getLastWeek().getQuestions());
+        assertEquals(26, report.getLastWeek().getCorrectAnswers());
+        assertEquals(260, report.getLastWeek().getPoints());
+        assertEquals(31, report.getLastMonth().getQuizzes());
+        assertEquals(61, report.getAllTime().getQuizzes());
+        assertEquals(60, report.getAllTime().getAccuracyPercent());
+    }
+
+    @Test
+    public void rangesWithGaps_useTheTotalsOfTheLastActiveDay() {
+        record(TODAY - 40, 4, 5);
+        record(TODAY - 10, 2, 5);
+
+        assertEquals(0, dbHelper.getProgress(TODAY - 6, TODAY).getQuizzes());
+        assertEquals(1, dbHelper.getProgress(TODAY - 29, TODAY).getQuizzes());
+        assertEquals(2, dbHelper.getProgress(TODAY - 50, TODAY - 5).getQuizzes());
+        assertEquals(1, dbHelper.getProgress(TODAY - 45, TODAY - 20).getQuizzes());
+        assertEquals(0, dbHelper.getProgressReport(TODAY).getLastWeek().getAccuracyPercent());
+    }
+
+    @Test
+    public void lateResult_movesTheTotalsOfLaterDays() {
+        record(TODAY - 2, 1, 5);
+        record(TODAY, 2, 5);
+        // Clock turned back
+        record(TODAY - 5, 5, 5);
+
+        assertEquals(8, dbHelper.getProgress(Long.MIN_VALUE, TODAY).getCorrectAnswers());
+        assertEquals(3, dbHelper.getProgress(TODAY - 2, TODAY).getCorrectAnswers());
+        assertEquals(6, dbHelper.getProgress(TODAY - 5, TODAY - 1).getCorrectAnswers());
+    }
+
+    @Test
+    public void rangeLookups_seekByDay() {
+        record(TODAY, 3, 5);
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN "
+                + "SELECT total_quizzes FROM daily_progress WHERE epoch_day <= ? "
+                + "ORDER BY epoch_day DESC LIMIT 1", new String[]{String.valueOf(TODAY)});
+        StringBuilder plan = new StringBuilder();
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(cursor.getColumnIndexOrThrow("detail"))).append('\n');
+        }
+        cursor.close();
+
+        assertTrue(plan.toString(), plan.toString().contains("INTEGER PRIMARY KEY"));
+        assertFalse(plan.toString(), plan.toString().contains("TEMP B-TREE"));
+    }
+
+    private void record(long day, int correct, int questions) {
+        dbHelper.recordQuizResult(new QuizResult(day * 86_400_000L, day, correct, questions,
+                correct * PointsManager.POINTS_PER_CORRECT_ANSWER));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.dashboard;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which people quiz sampling may pick as questions and answers
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QuizSamplingTest {
+
+    private static final String DB_NAME = "quiz_sampling";
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void randomPeople_areDistinctAndSkipExcludedIds() {
+        List<Person> people = addNamedPeople(30);
+        Set<Long> excluded = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            excluded.add(people.get(i).getId());
+        }
+
+        for (int round = 0; round < 20; round++) {
+            List<Person> picked = dbHelper.getRandomPeople(8, excluded);
+
+            assertEquals(8, picked.size());
+            Set<Long> pickedIds = new HashSet<>();
+            for (Person person : picked) {
+                assertTrue("Picked twice: " + person.getId(), pickedIds.add(person.getId()));
+                assertFalse("Picked an excluded person", excluded.contains(person.getId()));
+            }
+        }
+    }
+
+    @Test
+    public void randomPeople_fillFromSparseIdsAndStopAtTheRosterSize() {
+        List<Person> people = addNamedPeople(40);
+        // Leave a few rows spread over a wide ID range, so most seeks land in gaps
+        List<Person> deleted = new ArrayList<>(people.subList(1, 39));
+        dbHelper.deletePeople(deleted);
+
+        assertEquals(2, dbHelper.getRandomPeople(2).size());
+        assertEquals(2, dbHelper.getRandomPeople(5).size());
+    }
+
+    @Test
+    public void quizDistractors_neverRepeatTheAnswerOrEachOther() {
+        addNamedPeople(12);
+
+        for (int round = 0; round < 20; round++) {
+            QuizSample sample = dbHelper.sampleQuiz(4, 3);
+
+            assertEquals(4, sample.getPeople().size());
+            for (int question = 0; question < sample.getPeople().size(); question++) {
+                List<String> distractors = sample.getDistractors(question);
+                assertEquals(3, distractors.size());
+                assertEquals(3, new HashSet<>(distractors).size());
+                assertFalse(distractors.contains(sample.getPeople().get(question).getName()));
+            }
+        }
+    }
+
+    @Test
+    public void unnamedImports_areNeverAskedOrOffered() {
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            // Mostly untagged imports, with a few named people spread between them
+            String name = i % 8 == 0 ? "Person " + i : "";
+            people.add(new Person(name, "file:///photos/" + i + ".webp", null, ""));
+        }
+        dbHelper.addPeople(people);
+
+        for (int round = 0; round < 20; round++) {
+            QuizSample sample = dbHelper.sampleQuiz(5, 3);
+
+            assertEquals(5, sample.getPeople().size());
+            for (int question = 0; question < sample.getPeople().size(); question++) {
+                assertFalse(sample.getPeople().get(question).getName().isEmpty());
+                for (String distractor : sample.getDistractors(question)) {
+                    assertFalse(distractor.isEmpty());
+                }
+            }
+        }
+    }
+
+    private List<Person> addNamedPeople(int count) {
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            people.add(new Person("Person " + i, "file:///photos/" + i + ".webp", "Family", ""));
+        }
+        dbHelper.addPeople(people);
+        return people;
+    }
+}
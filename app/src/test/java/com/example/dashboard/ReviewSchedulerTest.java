@@ -0,0 +1,136 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Spaced repetition: which people are due, and how answers move their next review
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ReviewSchedulerTest {
+
+    private static final String DB_NAME = "review_scheduler";
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private Context context;
+    private WhosWhoDbHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new WhosWhoDbHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void answeredPeople_makeWayForThoseStillDue() {
+        List<Person> people = addPeople(10);
+
+        List<Person> first = dbHelper.sampleQuiz(5, 0, NOW).getPeople();
+        dbHelper.recordReviews(outcomes(first, true), NOW);
+        List<Person> second = dbHelper.sampleQuiz(5, 0, NOW).getPeople();
+
+        Set<Long> asked = new HashSet<>();
+        for (Person person : first) {
+            asked.add(person.getId());
+        }
+        for (Person person : second) {
+            assertTrue(person.getName(), asked.add(person.getId()));
+        }
+        assertEquals(people.size(), asked.size());
+
+        // Nobody is due any more, the quiz is filled at random
+        dbHelper.recordReviews(outcomes(second, true), NOW);
+        assertTrue(dbHelper.getDuePeople(5, NOW).isEmpty());
+        assertEquals(5, dbHelper.sampleQuiz(5, 0, NOW).getPeople().size());
+    }
+
+    @Test
+    public void correctAnswers_doubleTheInterval_wrongAnswersResetIt() {
+        Person person = addPeople(1).get(0);
+        List<ReviewOutcome> correct = Arrays.asList(new ReviewOutcome(person.getId(), true));
+        List<ReviewOutcome> wrong = Arrays.asList(new ReviewOutcome(person.getId(), false));
+
+        dbHelper.recordReviews(correct, NOW);
+        assertTrue(dbHelper.getDuePeople(1, NOW + DAY - 1).isEmpty());
+        assertEquals(1, dbHelper.getDuePeople(1, NOW + DAY).size());
+
+        dbHelper.recordReviews(correct, NOW + DAY);
+        assertTrue(dbHelper.getDuePeople(1, NOW + 3 * DAY - 1).isEmpty());
+        assertEquals(1, dbHelper.getDuePeople(1, NOW + 3 * DAY).size());
+
+        dbHelper.recordReviews(wrong, NOW + 3 * DAY);
+        assertEquals(1, dbHelper.getDuePeople(1, NOW + 3 * DAY).size());
+    }
+
+    @Test
+    public void mostOverduePeople_comeFirst() {
+        List<Person> people = addPeople(3);
+        dbHelper.recordReviews(Arrays.asList(new ReviewOutcome(people.get(0).getId(), true)), NOW);
+        dbHelper.recordReviews(Arrays.asList(new ReviewOutcome(people.get(1).getId(), true)), NOW - DAY);
+        dbHelper.recordReviews(Arrays.asList(new ReviewOutcome(people.get(2).getId(), true)), NOW - 2 * DAY);
+
+        List<Person> due = dbHelper.getDuePeople(2, NOW + DAY);
+
+        assertEquals(2, due.size());
+        assertEquals(people.get(2).getId(), due.get(0).getId());
+        assertEquals(people.get(1).getId(), due.get(1).getId());
+    }
+
+    @Test
+    public void dueQuery_walksTheDueIndex() {
+        addPeople(20);
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN "
+                + "SELECT id, name FROM review_state JOIN people ON people.id = review_state.person_id "
+                + "WHERE due_at <= ? AND name IS NOT NULL AND name != '' AND photo_status != 2 "
+                + "ORDER BY due_at LIMIT 5", new String[]{String.valueOf(NOW)});
+        StringBuilder plan = new StringBuilder();
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(cursor.getColumnIndexOrThrow("detail"))).append('\n');
+        }
+        cursor.close();
+
+        assertTrue(plan.toString(), plan.toString().contains("idx_review_state_due"));
+        assertFalse(plan.toString(), plan.toString().contains("TEMP B-TREE"));
+    }
+
+    private List<Person> addPeople(int count) {
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            people.add(new Person("Person " + i, "file:///photos/" + i + ".webp", "Family", ""));
+        }
+        dbHelper.addPeople(people);
+        return people;
+    }
+
+    private static List<ReviewOutcome> outcomes(List<Person> people, boolean correct) {
+        List<ReviewOutcome> outcomes = new ArrayList<>();
+        for (Person person : people) {
+            outcomes.add(new ReviewOutcome(person.getId(), correct));
+        }
+        return outcomes;
+    }
+}
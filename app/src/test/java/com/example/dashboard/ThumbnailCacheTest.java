@@ -0,0 +1,122 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * The memory and disk tiers that keep decoded thumbnails between binds
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ThumbnailCacheTest {
+
+    private static final int SIZE = 64;
+
+    private File directory;
+    private File probeDirectory;
+    // Files already given a modification time by stampNewFiles
+    private final Set<String> stamped = new HashSet<>();
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        directory = new File(context.getCacheDir(), "thumbnail_cache_test");
+        probeDirectory = new File(context.getCacheDir(), "thumbnail_cache_probe");
+        deleteFiles(directory);
+        deleteFiles(probeDirectory);
+    }
+
+    @Test
+    public void memoryCache_evictsLeastRecentlyUsedByBytes() {
+        Bitmap first = thumbnail(Color.RED);
+        // Room for exactly two thumbnails
+        BitmapMemoryCache cache = new BitmapMemoryCache(2 * first.getAllocationByteCount());
+        cache.putAndAcquire("first", first);
+        cache.putAndAcquire("second", thumbnail(Color.GREEN));
+
+        // Using the first one makes the second the least recently used
+        assertSame(first, cache.acquire("first"));
+        cache.putAndAcquire("third", thumbnail(Color.BLUE));
+
+        assertNotNull(cache.acquire("first"));
+        assertNull(cache.acquire("second"));
+        assertNotNull(cache.acquire("third"));
+        assertTrue(cache.getSizeBytes() <= cache.getMaxBytes());
+    }
+
+    @Test
+    public void diskCache_returnsTheStoredThumbnail() {
+        DiskThumbnailCache cache = new DiskThumbnailCache(directory, 1024 * 1024);
+
+        cache.put("content://photo/1@64x64", thumbnail(Color.RED));
+        Bitmap read = cache.get("content://photo/1@64x64", null);
+
+        assertNotNull(read);
+        assertEquals(SIZE, read.getWidth());
+        assertEquals(SIZE, read.getHeight());
+        assertNull(cache.get("content://photo/1@128x128", null));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void diskCache_deletesLeastRecentlyUsedFilesOverTheLimit() {
+        DiskThumbnailCache probe = new DiskThumbnailCache(probeDirectory, Long.MAX_VALUE);
+        probe.put("probe", thumbnail(Color.RED));
+        long fileBytes = probe.getSizeBytes();
+
+        // Room for two files but not three
+        DiskThumbnailCache cache = new DiskThumbnailCache(directory, 2 * fileBytes + fileBytes / 2);
+        cache.put("oldest", thumbnail(Color.RED));
+        stampNewFiles(1_000_000L);
+        cache.put("newer", thumbnail(Color.RED));
+        stampNewFiles(2_000_000L);
+        cache.put("newest", thumbnail(Color.RED));
+
+        assertNull(cache.get("oldest", null));
+        assertNotNull(cache.get("newer", null));
+        assertNotNull(cache.get("newest", null));
+        assertTrue(cache.getSizeBytes() <= 2 * fileBytes + fileBytes / 2);
+    }
+
+    /**
+     * File times can be coarser than the test runs, so give each write its own time
+     */
+    private void stampNewFiles(long lastModified) {
+        for (File file : directory.listFiles()) {
+            if (file.isFile() && stamped.add(file.getName())) {
+                file.setLastModified(lastModified);
+            }
+        }
+    }
+
+    private static void deleteFiles(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private static Bitmap thumbnail(int color) {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(color);
+        return bitmap;
+    }
+}
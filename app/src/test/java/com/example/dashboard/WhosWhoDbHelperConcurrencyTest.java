@@ -0,0 +1,226 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Concurrent readers and writers against WhosWhoDbHelper's long-lived WAL connection
+ * Only correctness is checked here. Throughput against opening and closing the
+ * database per write depends on the device's storage, so it is measured there.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WhosWhoDbHelperConcurrencyTest {
+
+    private static final int WRITERS = 2;
+    private static final int READERS = 4;
+    private static final int WRITES_PER_WRITER = 200;
+    private static final int READS_PER_READER = 200;
+    // Only reached when something is stuck, normal runs never wait this long
+    private static final long WAIT_SECONDS = 10;
+
+    private Context context;
+    private final List<String> databaseNames = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        for (String name : databaseNames) {
+            context.deleteDatabase(name);
+        }
+    }
+
+    @Test
+    public void concurrentReadersAndWriters_loseNoWrites() throws Exception {
+        WhosWhoDbHelper dbHelper = newHelper("concurrency_persistent");
+
+        assertEquals(0, run(dbHelper));
+        assertEquals(WRITERS * WRITES_PER_WRITER, dbHelper.getPeopleCount());
+        dbHelper.close();
+    }
+
+    @Test
+    public void readDuringOpenWriteTransaction_completesWithoutWaitingForCommit() throws Exception {
+        final WhosWhoDbHelper dbHelper = newHelper("concurrency_wal_read");
+        final CountDownLatch written = new CountDownLatch(1);
+        final CountDownLatch readDone = new CountDownLatch(1);
+        final AtomicBoolean committedBeforeRead = new AtomicBoolean();
+
+        // Holds a write transaction open until the read has finished, or gives up after the timeout
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dbHelper.runInTransaction(new WhosWhoDbHelper.Transaction<Void>() {
+                    @Override
+                    public Void run(SQLiteDatabase db) {
+                        dbHelper.addPerson(new Person("Meera", "content://photo/1", "Family", "Aunt"));
+                        written.countDown();
+                        if (!awaitQuietly(readDone, WAIT_SECONDS)) {
+                            committedBeforeRead.set(true);
+                        }
+                        return null;
+                    }
+                });
+            }
+        });
+        writer.start();
+        assertTrue(written.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        // Read on a second connection while the writer's transaction is still open
+        long rowsSeen = DatabaseUtils.queryNumEntries(dbHelper.getReadableDatabase(), "people");
+        readDone.countDown();
+        writer.join();
+
+        assertFalse("The read waited for the write transaction", committedBeforeRead.get());
+        assertEquals("The read saw uncommitted rows", 0, rowsSeen);
+        assertEquals(1, DatabaseUtils.queryNumEntries(dbHelper.getReadableDatabase(), "people"));
+        dbHelper.close();
+    }
+
+    @Test
+    public void readDuringOpenWriteTransaction_doesNotCacheStaleRows() throws Exception {
+        final WhosWhoDbHelper dbHelper = newHelper("concurrency_cache_read");
+        dbHelper.addPerson(new Person("Meera", "content://photo/1", "Family", "Aunt"));
+        final Person ravi = new Person("Ravi", "content://photo/2", "Friends", "Neighbour");
+        final CountDownLatch written = new CountDownLatch(1);
+        final CountDownLatch readDone = new CountDownLatch(1);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dbHelper.runInTransaction(new WhosWhoDbHelper.Transaction<Void>() {
+                    @Override
+                    public Void run(SQLiteDatabase db) {
+                        dbHelper.addPerson(ravi);
+                        written.countDown();
+                        awaitQuietly(readDone, WAIT_SECONDS);
+                        return null;
+                    }
+                });
+            }
+        });
+        writer.start();
+        assertTrue(written.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        // Warms the cache from the snapshot before the commit
+        assertEquals(1, dbHelper.getAllPeople().size());
+        readDone.countDown();
+        writer.join();
+
+        assertEquals(2, dbHelper.getAllPeople().size());
+        assertEquals("Ravi", dbHelper.getPerson(ravi.getId()).getName());
+        dbHelper.close();
+    }
+
+    @Test
+    public void runInTransaction_rollsBackOnFailure() {
+        final WhosWhoDbHelper dbHelper = newHelper("transaction_rollback");
+
+        try {
+            dbHelper.runInTransaction(new WhosWhoDbHelper.Transaction<Void>() {
+                @Override
+                public Void run(SQLiteDatabase db) {
+                    dbHelper.addPerson(new Person("Meera", "content://photo/1", "Family", "Aunt"));
+                    throw new IllegalStateException("abort");
+                }
+            });
+            fail("Expected the transaction to throw");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        assertEquals(0, dbHelper.getPeopleCount());
+        dbHelper.close();
+    }
+
+    private WhosWhoDbHelper newHelper(String name) {
+        databaseNames.add(name);
+        context.deleteDatabase(name);
+        return new WhosWhoDbHelper(context, name);
+    }
+
+    /**
+     * Start all readers and writers together and wait until they all finish
+     * @return The number of operations that failed
+     */
+    private int run(final WhosWhoDbHelper dbHelper) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    awaitQuietly(start, WAIT_SECONDS);
+                    for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                        try {
+                            dbHelper.addPerson(new Person("Person " + writer + "-" + i,
+                                    "content://photo/" + i, "Family", "Friend"));
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    awaitQuietly(start, WAIT_SECONDS);
+                    for (int i = 0; i < READS_PER_READER; i++) {
+                        try {
+                            dbHelper.getPeopleCount();
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return failures.get();
+    }
+
+    /**
+     * @return False if the latch did not open in time
+     */
+    private static boolean awaitQuietly(CountDownLatch latch, long seconds) {
+        try {
+            return latch.await(seconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
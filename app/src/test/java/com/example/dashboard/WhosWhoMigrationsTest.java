@@ -0,0 +1,149 @@
+package com.example.dashboard;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a populated version 1 database and checks data and query plans
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WhosWhoMigrationsTest {
+
+    private static final String UPGRADED_DB = "migration_upgraded";
+    private static final String FRESH_DB = "migration_fresh";
+    private static final int ROWS = 20_000;
+    private static final String[] CATEGORIES = {"Family", "Friends", "Relatives"};
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(UPGRADED_DB);
+        context.deleteDatabase(FRESH_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(UPGRADED_DB);
+        context.deleteDatabase(FRESH_DB);
+    }
+
+    @Test
+    public void upgradeFromVersion1_keepsEveryPerson() {
+        createVersion1Database(UPGRADED_DB, ROWS);
+
+        WhosWhoDbHelper dbHelper = new WhosWhoDbHelper(context, UPGRADED_DB);
+
+        assertEquals(ROWS, dbHelper.getPeopleCount());
+        assertEquals("Person 42", dbHelper.getPerson(43).getName());
+        assertEquals(WhosWhoMigrations.LATEST_VERSION, dbHelper.getReadableDatabase().getVersion());
+        dbHelper.close();
+    }
+
+    @Test
+    public void upgradedQueries_useCategoryAndNameIndexes() {
+        createVersion1Database(UPGRADED_DB, ROWS);
+        WhosWhoDbHelper dbHelper = new WhosWhoDbHelper(context, UPGRADED_DB);
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        String categoryPlan = queryPlan(db, "SELECT * FROM people WHERE category = 'Family'");
+        String namePlan = queryPlan(db, "SELECT id, name FROM people ORDER BY name LIMIT 20");
+
+        assertTrue(categoryPlan, categoryPlan.contains("idx_people_category"));
+        assertTrue(namePlan, namePlan.contains("idx_people_name"));
+        dbHelper.close();
+    }
+
+    @Test
+    public void upgradeFromVersion1_makesEachPhotoTheFirstOfItsPerson() {
+        createVersion1Database(UPGRADED_DB, 100);
+        WhosWhoDbHelper dbHelper = new WhosWhoDbHelper(context, UPGRADED_DB);
+
+        List<PersonPhoto> photos = dbHelper.getPersonPhotos(43);
+        assertEquals(1, photos.size());
+        assertEquals("content://media/external/images/media/42", photos.get(0).getPhotoUri());
+
+        String photoIdPlan = queryPlan(dbHelper.getReadableDatabase(),
+                "SELECT id FROM person_photos WHERE person_id = 43");
+        assertTrue(photoIdPlan, photoIdPlan.contains("COVERING INDEX idx_person_photos_person"));
+        dbHelper.close();
+    }
+
+    @Test
+    public void upgradeFromVersion1_makesEveryoneDueForReview() {
+        createVersion1Database(UPGRADED_DB, 100);
+        WhosWhoDbHelper dbHelper = new WhosWhoDbHelper(context, UPGRADED_DB);
+
+        assertEquals(100, dbHelper.getDuePeople(1000, 0).size());
+        dbHelper.close();
+    }
+
+    @Test
+    public void freshInstall_matchesUpgradedSchema() {
+        createVersion1Database(UPGRADED_DB, 1);
+        WhosWhoDbHelper upgraded = new WhosWhoDbHelper(context, UPGRADED_DB);
+        WhosWhoDbHelper fresh = new WhosWhoDbHelper(context, FRESH_DB);
+
+        assertEquals(schema(fresh.getReadableDatabase()), schema(upgraded.getReadableDatabase()));
+        upgraded.close();
+        fresh.close();
+    }
+
+    /**
+     * Build the database exactly as version 1 of the app left it
+     */
+    private void createVersion1Database(String name, int rows) {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(name), null);
+        db.execSQL(WhosWhoMigrations.CREATE_PEOPLE_V1);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                db.execSQL("INSERT INTO people(name, photo_uri, category, relation) VALUES (?, ?, ?, ?)",
+                        new Object[]{"Person " + i, "content://media/external/images/media/" + i,
+                                CATEGORIES[i % CATEGORIES.length], "Cousin"});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.setVersion(1);
+        db.close();
+    }
+
+    private static String queryPlan(SQLiteDatabase db, String sql) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+        int detail = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(detail)).append('\n');
+        }
+        cursor.close();
+        return plan.toString();
+    }
+
+    private static List<String> schema(SQLiteDatabase db) {
+        List<String> entries = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master "
+                + "WHERE name NOT LIKE 'sqlite_%' AND name != 'android_metadata' ORDER BY name", null);
+        while (cursor.moveToNext()) {
+            entries.add(cursor.getString(0) + " " + cursor.getString(1) + " " + cursor.getString(2));
+        }
+        cursor.close();
+        return entries;
+    }
+}